@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox;
+
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The lookups every provider call starts with, from the provider down to a support's capabilities, as client code
+ * makes them. Run with the GC profiler, <code>gc.alloc.rate.norm</code> shows what each lookup allocates.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceLookupBenchmark {
+    private BrightBoxCloud provider;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        provider = Fixtures.connect();
+    }
+
+    @Benchmark
+    public Object vmCapabilities() throws Exception {
+        return provider.getComputeServices().getVirtualMachineSupport().getCapabilities();
+    }
+
+    @Benchmark
+    public Object firewallCapabilities() throws Exception {
+        return provider.getNetworkServices().getFirewallSupport().getCapabilities();
+    }
+
+    @Benchmark
+    public Object dataCenterCapabilities() throws Exception {
+        return provider.getDataCenterServices().getCapabilities();
+    }
+}
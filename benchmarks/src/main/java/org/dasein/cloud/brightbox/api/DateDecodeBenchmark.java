@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.DateTypeAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of one API timestamp per operation from several threads sharing one adapter, as the provider's
+ * shared Gson instance is shared: {@link #adapter} <code>iso</code> is {@link IsoDateTypeAdapter},
+ * <code>gson</code> is Gson's {@link DateTypeAdapter}, which parses under a lock.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class DateDecodeBenchmark {
+    @Param({ "iso", "gson" })
+    public String adapter;
+
+    @Param({ "2015-02-10T12:34:56Z" })
+    public String timestamp;
+
+    private TypeAdapter<Date> dates;
+    private String            json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dates = ( "iso".equals(adapter) ? new IsoDateTypeAdapter() : new DateTypeAdapter() );
+        json = "\"" + timestamp + "\"";
+    }
+
+    @Benchmark
+    public Date decode() throws Exception {
+        return dates.fromJson(json);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.reflect.TypeToken;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import retrofit.converter.GsonConverter;
+import retrofit.mime.TypedByteArray;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON decoding of <code>GET /1.0/servers</code> payloads through the provider's Gson configuration: the recorded
+ * response in <code>list-servers.json</code> and synthetic ones of {@link #size} servers, each decoded both into a
+ * list, as <code>listServers()</code> does, and element by element, as <code>streamServers()</code> callers do.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ListServersDecodeBenchmark {
+    static private final Type SERVER_LIST = new TypeToken<List<Server>>() {}.getType();
+
+    @Param({ "100", "10000", "100000" })
+    public int size;
+
+    private GsonConverter converter;
+    private byte[]        recorded;
+    private byte[]        synthetic;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        converter = new GsonConverter(BrightBoxCloud.getGson());
+        recorded = Fixtures.resource("/list-servers.json");
+        synthetic = Fixtures.serversJson(size).getBytes("utf-8");
+    }
+
+    @Benchmark
+    public Object decodeRecorded() throws Exception {
+        return converter.fromBody(new TypedByteArray("application/json", recorded), SERVER_LIST);
+    }
+
+    @Benchmark
+    public Object decodeList() throws Exception {
+        return converter.fromBody(new TypedByteArray("application/json", synthetic), SERVER_LIST);
+    }
+
+    @Benchmark
+    public void decodeStream(final Blackhole blackhole) throws Exception {
+        Response response = new Response(Fixtures.ENDPOINT + "/1.0/servers", 200, "OK", Collections.<Header>emptyList(),
+                new TypedByteArray("application/json", synthetic));
+
+        JsonStreams.forEach(response, Server.class, new JsonStreams.ElementHandler<Server>() {
+            @Override public void handle(Server element) {
+                blackhole.consume(element);
+            }
+        });
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.internal.bind.DateTypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.LoadBalancer;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the model lists with the provider's streaming adapters, {@link #decoder} <code>streaming</code>,
+ * against Gson's reflective field binding with the same naming policy, {@link #decoder} <code>reflective</code>.
+ * Run with the GC profiler to compare the allocation per operation as well as the throughput.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ModelDecodeBenchmark {
+    static private final Type SERVER_LIST          = new TypeToken<List<Server>>() {}.getType();
+    static private final Type IMAGE_LIST           = new TypeToken<List<Image>>() {}.getType();
+    static private final Type FIREWALL_POLICY_LIST = new TypeToken<List<FirewallPolicy>>() {}.getType();
+    static private final Type LOAD_BALANCER_LIST   = new TypeToken<List<LoadBalancer>>() {}.getType();
+    static private final Type CLOUD_IP_LIST        = new TypeToken<List<CloudIp>>() {}.getType();
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    @Param({ "streaming", "reflective" })
+    public String decoder;
+
+    private Gson   gson;
+    private byte[] servers;
+    private byte[] images;
+    private byte[] firewallPolicies;
+    private byte[] loadBalancers;
+    private byte[] cloudIps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if( "reflective".equals(decoder) ) {
+            gson = new GsonBuilder()
+                    .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                    .registerTypeAdapter(Date.class, new DateTypeAdapter())
+                    .create();
+        }
+        else {
+            gson = BrightBoxCloud.getGson();
+        }
+        servers = Fixtures.serversJson(size).getBytes("utf-8");
+        images = Fixtures.imagesJson(size).getBytes("utf-8");
+        firewallPolicies = Fixtures.firewallPoliciesJson(size).getBytes("utf-8");
+        loadBalancers = Fixtures.loadBalancersJson(size).getBytes("utf-8");
+        cloudIps = Fixtures.cloudIpsJson(size).getBytes("utf-8");
+    }
+
+    private Object decode(byte[] json, Type type) throws Exception {
+        return gson.fromJson(new InputStreamReader(new ByteArrayInputStream(json), "utf-8"), type);
+    }
+
+    @Benchmark
+    public Object servers() throws Exception {
+        return decode(servers, SERVER_LIST);
+    }
+
+    @Benchmark
+    public Object images() throws Exception {
+        return decode(images, IMAGE_LIST);
+    }
+
+    @Benchmark
+    public Object firewallPolicies() throws Exception {
+        return decode(firewallPolicies, FIREWALL_POLICY_LIST);
+    }
+
+    @Benchmark
+    public Object loadBalancers() throws Exception {
+        return decode(loadBalancers, LOAD_BALANCER_LIST);
+    }
+
+    @Benchmark
+    public Object cloudIps() throws Exception {
+        return decode(cloudIps, CLOUD_IP_LIST);
+    }
+}
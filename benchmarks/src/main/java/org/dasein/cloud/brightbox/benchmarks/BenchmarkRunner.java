@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks selected on the command line, as the standard JMH main does, with the GC profiler always
+ * enabled so that every result reports <code>gc.alloc.rate.norm</code>, the bytes allocated per operation.
+ * Example: <code>java -jar target/benchmarks.jar ConversionBenchmark -p size=10000</code>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() { }
+
+    static public void main(String... args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+
+        new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+    }
+}
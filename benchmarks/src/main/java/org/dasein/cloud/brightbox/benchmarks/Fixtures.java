@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.benchmarks;
+
+import com.google.gson.reflect.TypeToken;
+import org.dasein.cloud.Cloud;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.LoadBalancer;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Synthetic Brightbox API payloads shaped like real responses, decoded through the provider's own Gson
+ * configuration, and a provider connected to an offline context that serves them to the support classes.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class Fixtures {
+    static public final String ENDPOINT = "https://api.gb1.brightbox.com";
+    static public final String ACCOUNT  = "acc-bench";
+    static public final String REGION   = "gb1";
+
+    /**
+     * Number of server groups every server fixture may belong to.
+     */
+    static public final int SERVER_GROUPS = 20;
+
+    static private final String[] IMAGE_NAMES = {
+            "ubuntu-trusty-14.04-amd64-server", "centos-7.0-x86_64", "debian-jessie-8.1-amd64", "fedora-22-x86_64",
+            "freebsd-10.1-amd64", "windows-2012-r2-standard", "coreos-stable-717.3.0", "custom-app-server"
+    };
+
+    private Fixtures() { }
+
+    /**
+     * @return a provider connected to a context that is never used to reach the API
+     * @throws Exception the provider could not be connected
+     */
+    static public @Nonnull OfflineCloud connect() throws Exception {
+        Cloud cloud = Cloud.register("Brightbox", "Brightbox", ENDPOINT, OfflineCloud.class);
+        ProviderContext ctx = cloud.createContext(ACCOUNT, REGION,
+                new ProviderContext.Value<byte[][]>("apiKey", new byte[][] { "cli-bench".getBytes("utf-8"), "secret".getBytes("utf-8") }));
+
+        return ( OfflineCloud ) ctx.connect();
+    }
+
+    static private @Nonnull String id(@Nonnull String prefix, int i) {
+        String hex = Integer.toString(i, 36);
+        StringBuilder id = new StringBuilder(prefix).append('-');
+
+        for( int n = hex.length(); n < 5; n++ ) {
+            id.append('0');
+        }
+        return id.append(hex).toString();
+    }
+
+    static private void image(@Nonnull StringBuilder json, int i) {
+        String name = IMAGE_NAMES[i % IMAGE_NAMES.length];
+
+        json.append("{\"id\":\"").append(id("img", i)).append("\",\"resource_type\":\"image\",\"url\":\"").append(ENDPOINT).append("/1.0/images/").append(id("img", i))
+                .append("\",\"name\":\"").append(name).append("\",\"status\":\"").append(i % 17 == 0 ? "deprecated" : "available")
+                .append("\",\"locked\":false,\"username\":\"ubuntu\",\"description\":\"Standard server with cloud-init\",\"source\":\"").append(name)
+                .append(".img\",\"arch\":\"").append(i % 5 == 0 ? "i686" : "x86_64")
+                .append("\",\"created_at\":\"2015-02-09T12:34:56Z\",\"official\":").append(i % 3 == 0).append(",\"public\":").append(i % 2 == 0)
+                .append(",\"compatibility_mode\":false,\"source_type\":\"upload\",\"disk_size\":2252,\"virtual_size\":2252,\"min_ram\":null,\"owner\":\"")
+                .append(i % 2 == 0 ? "acc-official" : ACCOUNT).append("\",\"licence_name\":\"").append(name.startsWith("windows") ? "windows-2012" : "").append("\"}");
+    }
+
+    static private void server(@Nonnull StringBuilder json, int i) {
+        String server = id("srv", i);
+
+        json.append("{\"id\":\"").append(server).append("\",\"resource_type\":\"server\",\"url\":\"").append(ENDPOINT).append("/1.0/servers/").append(server)
+                .append("\",\"name\":\"").append(i % 4 == 0 ? "web-ubuntu-" : "app-").append(i).append("\",\"status\":\"").append(i % 10 == 0 ? "inactive" : "active")
+                .append("\",\"hostname\":\"").append(server).append("\",\"fqdn\":\"").append(server).append(".gb1.brightbox.com")
+                .append("\",\"created_at\":\"2015-03-01T08:00:00Z\",\"started_at\":\"2015-03-01T08:01:12Z\",\"deleted_at\":null,\"user_data\":null,\"compatibility_mode\":false,\"locked\":false")
+                .append(",\"account\":{\"id\":\"").append(ACCOUNT).append("\",\"resource_type\":\"account\",\"name\":\"Benchmarks\",\"status\":\"active\"}")
+                .append(",\"image\":");
+        image(json, i % 64);
+        json.append(",\"server_type\":{\"id\":\"typ-").append(i % 8).append("a2b3\",\"resource_type\":\"server_type\",\"name\":\"Small\",\"status\":\"available\",\"cores\":2,\"ram\":2048,\"disk_size\":81920,\"handle\":\"nano\"}")
+                .append(",\"zone\":{\"id\":\"zon-").append(i % 2 == 0 ? "6mou8" : "7mou9").append("\",\"resource_type\":\"zone\",\"handle\":\"gb1-").append(i % 2 == 0 ? 'a' : 'b').append("\"}")
+                .append(",\"snapshots\":[],\"cloud_ips\":[");
+        if( i % 3 == 0 ) {
+            json.append("{\"id\":\"").append(id("cip", i)).append("\",\"resource_type\":\"cloud_ip\",\"public_ip\":\"109.107.").append((i >> 8) & 0xff).append('.').append(i & 0xff)
+                    .append("\",\"status\":\"mapped\",\"reverse_dns\":\"cip-").append(i).append(".gb1.brightbox.com\"}");
+        }
+        json.append("],\"interfaces\":[{\"id\":\"").append(id("int", i)).append("\",\"resource_type\":\"interface\",\"mac_address\":\"02:24:19:00:").append(String.format("%02x:%02x", (i >> 8) & 0xff, i & 0xff))
+                .append("\",\"ipv4_address\":\"10.").append((i >> 16) & 0xff).append('.').append((i >> 8) & 0xff).append('.').append(i & 0xff)
+                .append("\",\"ipv6_address\":\"2a02:1348:17c:").append(Integer.toHexString(i)).append("::1\"}],\"server_groups\":[");
+        for( int g = 0; g < 1 + i % 3; g++ ) {
+            if( g > 0 ) {
+                json.append(',');
+            }
+            String group = id("grp", (i + g * 7) % SERVER_GROUPS);
+            json.append("{\"id\":\"").append(group).append("\",\"resource_type\":\"server_group\",\"url\":\"").append(ENDPOINT).append("/1.0/server_groups/").append(group)
+                    .append("\",\"name\":\"group ").append(group).append("\",\"default\":").append(g == 0 && i % 2 == 0).append('}');
+        }
+        json.append("]}");
+    }
+
+    static private void serverGroup(@Nonnull StringBuilder json, int i) {
+        json.append("{\"id\":\"").append(id("grp", i)).append("\",\"resource_type\":\"server_group\",\"name\":\"group ").append(i)
+                .append("\",\"description\":\"benchmark group\",\"created_at\":\"2015-01-01T00:00:00Z\",\"default\":").append(i == 0)
+                .append(",\"firewall_policy\":{\"id\":\"").append(id("fwp", i)).append("\",\"resource_type\":\"firewall_policy\",\"name\":\"policy ").append(i).append("\"},\"servers\":[]}");
+    }
+
+    static private void firewallPolicy(@Nonnull StringBuilder json, int i) {
+        String policy = id("fwp", i);
+
+        json.append("{\"id\":\"").append(policy).append("\",\"resource_type\":\"firewall_policy\",\"url\":\"").append(ENDPOINT).append("/1.0/firewall_policies/").append(policy)
+                .append("\",\"default\":false,\"name\":\"policy ").append(i).append("\",\"description\":null,\"created_at\":\"2015-01-01T00:00:00Z\",\"rules\":[")
+                .append("{\"id\":\"").append(id("fwr", 4 * i)).append("\",\"source\":\"any\",\"source_port\":null,\"destination\":null,\"destination_port\":\"22\",\"protocol\":\"tcp\",\"description\":\"ssh\"},")
+                .append("{\"id\":\"").append(id("fwr", 4 * i + 1)).append("\",\"source\":\"10.0.0.0/8\",\"source_port\":null,\"destination\":null,\"destination_port\":\"80,443\",\"protocol\":\"tcp\",\"description\":\"web\"},")
+                .append("{\"id\":\"").append(id("fwr", 4 * i + 2)).append("\",\"source\":\"").append(id("srv", i)).append("\",\"source_port\":null,\"destination\":null,\"destination_port\":\"1000-2000\",\"protocol\":\"udp\",\"description\":null},")
+                .append("{\"id\":\"").append(id("fwr", 4 * i + 3)).append("\",\"source\":null,\"source_port\":\"1-65535\",\"destination\":\"any\",\"destination_port\":null,\"protocol\":null,\"description\":\"outbound\"}")
+                .append("]}");
+    }
+
+    static private void loadBalancer(@Nonnull StringBuilder json, int i) {
+        String lb = id("lba", i);
+
+        json.append("{\"id\":\"").append(lb).append("\",\"resource_type\":\"load_balancer\",\"url\":\"").append(ENDPOINT).append("/1.0/load_balancers/").append(lb)
+                .append("\",\"name\":\"lb ").append(i).append("\",\"status\":\"").append(i % 20 == 0 ? "creating" : "active")
+                .append("\",\"policy\":\"least-connections\",\"buffer_size\":4096,\"created_at\":\"2015-01-01T00:00:00Z\",\"deleted_at\":null,\"locked\":false")
+                .append(",\"listeners\":[{\"in\":80,\"out\":8080,\"protocol\":\"http\",\"timeout\":50000},{\"in\":443,\"out\":8443,\"protocol\":\"tcp\",\"timeout\":50000}]")
+                .append(",\"healthcheck\":{\"type\":\"http\",\"port\":8080,\"request\":\"/\",\"interval\":5000,\"timeout\":5000,\"threshold_up\":3,\"threshold_down\":3}")
+                .append(",\"account\":{\"id\":\"").append(ACCOUNT).append("\",\"resource_type\":\"account\"},\"cloud_ips\":[],\"nodes\":[{\"id\":\"").append(id("srv", i))
+                .append("\",\"resource_type\":\"server\"},{\"id\":\"").append(id("srv", i + 1)).append("\",\"resource_type\":\"server\"}]}");
+    }
+
+    static private void cloudIp(@Nonnull StringBuilder json, int i) {
+        json.append("{\"id\":\"").append(id("cip", i)).append("\",\"resource_type\":\"cloud_ip\",\"url\":\"").append(ENDPOINT).append("/1.0/cloud_ips/").append(id("cip", i))
+                .append("\",\"public_ip\":\"109.107.").append((i >> 8) & 0xff).append('.').append(i & 0xff).append("\",\"status\":\"").append(i % 3 == 0 ? "unmapped" : "mapped")
+                .append("\",\"reverse_dns\":\"cip-").append(i).append(".gb1.brightbox.com\",\"name\":null,\"port_translators\":[]")
+                .append(",\"account\":{\"id\":\"").append(ACCOUNT).append("\",\"resource_type\":\"account\"}");
+        if( i % 3 == 1 ) {
+            json.append(",\"interface\":{\"id\":\"").append(id("int", i)).append("\",\"resource_type\":\"interface\"},\"server\":{\"id\":\"").append(id("srv", i)).append("\",\"resource_type\":\"server\"}");
+        }
+        else if( i % 3 == 2 ) {
+            json.append(",\"load_balancer\":{\"id\":\"").append(id("lba", i)).append("\",\"resource_type\":\"load_balancer\"}");
+        }
+        json.append('}');
+    }
+
+    static private final int IMAGE = 0, SERVER = 1, SERVER_GROUP = 2, FIREWALL_POLICY = 3, LOAD_BALANCER = 4, CLOUD_IP = 5;
+
+    static private @Nonnull String json(int type, int count) {
+        StringBuilder json = new StringBuilder(count * 512).append('[');
+
+        for( int i = 0; i < count; i++ ) {
+            if( i > 0 ) {
+                json.append(',');
+            }
+            switch( type ) {
+                case IMAGE: image(json, i); break;
+                case SERVER: server(json, i); break;
+                case SERVER_GROUP: serverGroup(json, i); break;
+                case FIREWALL_POLICY: firewallPolicy(json, i); break;
+                case LOAD_BALANCER: loadBalancer(json, i); break;
+                default: cloudIp(json, i); break;
+            }
+        }
+        return json.append(']').toString();
+    }
+
+    static private <T> List<T> decode(@Nonnull String json, @Nonnull Type type) {
+        return BrightBoxCloud.getGson().fromJson(json, type);
+    }
+
+    /**
+     * @param count number of servers
+     * @return the JSON array a <code>GET /1.0/servers</code> for that many servers would return
+     */
+    static public @Nonnull String serversJson(int count) {
+        return json(SERVER, count);
+    }
+
+    static public @Nonnull List<Server> servers(int count) {
+        return decode(serversJson(count), new TypeToken<List<Server>>() {}.getType());
+    }
+
+    static public @Nonnull String serverGroupsJson() {
+        return serverGroupsJson(SERVER_GROUPS);
+    }
+
+    /**
+     * @param count number of server groups, the first {@link #SERVER_GROUPS} of which the server fixtures belong to
+     * @return the JSON array a <code>GET /1.0/server_groups</code> for that many groups would return
+     */
+    static public @Nonnull String serverGroupsJson(int count) {
+        return json(SERVER_GROUP, count);
+    }
+
+    static public @Nonnull List<ServerGroup> serverGroups() {
+        return serverGroups(SERVER_GROUPS);
+    }
+
+    static public @Nonnull List<ServerGroup> serverGroups(int count) {
+        return decode(serverGroupsJson(count), new TypeToken<List<ServerGroup>>() {}.getType());
+    }
+
+    static public @Nonnull String imagesJson(int count) {
+        return json(IMAGE, count);
+    }
+
+    static public @Nonnull List<Image> images(int count) {
+        return decode(imagesJson(count), new TypeToken<List<Image>>() {}.getType());
+    }
+
+    static public @Nonnull String firewallPoliciesJson(int count) {
+        return json(FIREWALL_POLICY, count);
+    }
+
+    static public @Nonnull List<FirewallPolicy> firewallPolicies(int count) {
+        return decode(firewallPoliciesJson(count), new TypeToken<List<FirewallPolicy>>() {}.getType());
+    }
+
+    static public @Nonnull String loadBalancersJson(int count) {
+        return json(LOAD_BALANCER, count);
+    }
+
+    static public @Nonnull List<LoadBalancer> loadBalancers(int count) {
+        return decode(loadBalancersJson(count), new TypeToken<List<LoadBalancer>>() {}.getType());
+    }
+
+    static public @Nonnull String cloudIpsJson(int count) {
+        return json(CLOUD_IP, count);
+    }
+
+    static public @Nonnull List<CloudIp> cloudIps(int count) {
+        return decode(cloudIpsJson(count), new TypeToken<List<CloudIp>>() {}.getType());
+    }
+
+    /**
+     * @param name a resource of this module
+     * @return its bytes
+     * @throws IOException the resource could not be read
+     */
+    static public @Nonnull byte[] resource(@Nonnull String name) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream(name);
+
+        if( in == null ) {
+            throw new IOException("No such resource: " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+
+            while( (n = in.read(buffer)) != -1 ) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.benchmarks;
+
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.CloudApiService;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A provider whose API service answers single resource lookups, such as <code>getFirewallPolicy(id)</code>, from
+ * fixtures held in memory, so that the public support methods can be measured without reaching the API. Any
+ * other call fails.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class OfflineCloud extends BrightBoxCloud {
+    private final Map<Class<?>, Map<String, Object>> resources = new HashMap<Class<?>, Map<String, Object>>();
+    private final CloudApiService                    service;
+
+    public OfflineCloud() {
+        service = ( CloudApiService ) Proxy.newProxyInstance(CloudApiService.class.getClassLoader(), new Class<?>[] { CloudApiService.class }, new InvocationHandler() {
+            @Override public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if( method.getDeclaringClass() == Object.class ) {
+                    return method.invoke(this, args);
+                }
+                Map<String, Object> byId = resources.get(method.getReturnType());
+                Object resource = ( byId != null && args != null && args.length == 1 ? byId.get(args[0]) : null );
+
+                if( resource == null ) {
+                    throw new UnsupportedOperationException(method.getName() + " is not served offline");
+                }
+                return resource;
+            }
+        });
+    }
+
+    /**
+     * Makes a resource available to the lookups returning its class. Not thread safe; serve everything before the
+     * measurement starts.
+     * @param type the model class, as returned by the lookup
+     * @param id the id the lookup is called with
+     * @param resource the resource to return
+     */
+    public <T> void serve(@Nonnull Class<T> type, @Nonnull String id, @Nonnull T resource) {
+        Map<String, Object> byId = resources.get(type);
+
+        if( byId == null ) {
+            byId = new HashMap<String, Object>();
+            resources.put(type, byId);
+        }
+        byId.put(id, resource);
+    }
+
+    @Override
+    public @Nonnull CloudApiService getCloudApiService() {
+        return service;
+    }
+}
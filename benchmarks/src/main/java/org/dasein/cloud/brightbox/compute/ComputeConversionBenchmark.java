@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.dasein.cloud.compute.MachineImage;
+import org.dasein.cloud.compute.VirtualMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of Brightbox servers and images into Dasein virtual machines and machine images. Each invocation
+ * converts the next resource of a fixture of {@link #size} resources, so scores are per resource.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class ComputeConversionBenchmark {
+    @Param({ "100", "10000", "100000" })
+    public int size;
+
+    private BrightBoxVmSupport           vmSupport;
+    private BrightBoxMachineImageSupport imageSupport;
+    private Server[]                     servers;
+    private Map<String, String>          firewallIds;
+    private Image[]                      images;
+    private int                          next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BrightBoxCloud provider = Fixtures.connect();
+
+        vmSupport = new BrightBoxVmSupport(provider);
+        imageSupport = new BrightBoxMachineImageSupport(provider);
+        List<Server> serverList = Fixtures.servers(size);
+        servers = serverList.toArray(new Server[serverList.size()]);
+        firewallIds = BrightBoxVmSupport.toFirewallIdsByGroup(Fixtures.serverGroups());
+        List<Image> imageList = Fixtures.images(size);
+        images = imageList.toArray(new Image[imageList.size()]);
+    }
+
+    private int next() {
+        int i = next++;
+
+        if( next == size ) {
+            next = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public VirtualMachine toVirtualMachine() throws Exception {
+        return vmSupport.toVirtualMachine(servers[next()], firewallIds);
+    }
+
+    @Benchmark
+    public MachineImage toMachineImage() throws Exception {
+        return imageSupport.toMachineImage(images[next()]);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import com.google.gson.reflect.TypeToken;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ResourceStatus;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.JsonStreams;
+import org.dasein.cloud.brightbox.api.Projection;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import retrofit.client.Header;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding and conversion of whole server and image lists as <code>listVirtualMachines()</code>,
+ * <code>listVirtualMachineStatus()</code> and <code>listImages()</code> do them, with {@link #projection}
+ * <code>sparse</code> under the projections those operations declare and with <code>full</code> decoding every field.
+ * Each operation handles {@link #size} resources.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+public class ProjectedDecodeBenchmark {
+    static private final Type SERVER_GROUP_LIST = new TypeToken<List<ServerGroup>>() {}.getType();
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    @Param({ "sparse", "full" })
+    public String projection;
+
+    private BrightBoxVmSupport           vmSupport;
+    private BrightBoxMachineImageSupport imageSupport;
+    private String                       serverGroups;
+    private byte[]                       servers;
+    private byte[]                       images;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BrightBoxCloud provider = Fixtures.connect();
+
+        vmSupport = new BrightBoxVmSupport(provider);
+        imageSupport = new BrightBoxMachineImageSupport(provider);
+        serverGroups = Fixtures.serverGroupsJson();
+        servers = Fixtures.serversJson(size).getBytes("utf-8");
+        images = Fixtures.imagesJson(size).getBytes("utf-8");
+    }
+
+    static private Response response(String path, byte[] body) {
+        return new Response(Fixtures.ENDPOINT + path, 200, "OK", Collections.<Header>emptyList(), new TypedByteArray("application/json", body));
+    }
+
+    @Benchmark
+    public void listVirtualMachines(final Blackhole blackhole) throws Exception {
+        Projection previous = Projection.set("sparse".equals(projection) ? BrightBoxVmSupport.VM_FIELDS : null);
+        try {
+            List<ServerGroup> groups = BrightBoxCloud.getGson().fromJson(serverGroups, SERVER_GROUP_LIST);
+            final Map<String, String> firewallIds = BrightBoxVmSupport.toFirewallIdsByGroup(groups);
+            JsonStreams.forEach(response("/1.0/servers", servers), Server.class, new JsonStreams.ElementHandler<Server>() {
+                @Override public void handle(Server server) throws CloudException, InternalException {
+                    blackhole.consume(vmSupport.toVirtualMachine(server, firewallIds));
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
+        }
+    }
+
+    @Benchmark
+    public void listVirtualMachineStatus(final Blackhole blackhole) throws Exception {
+        Projection previous = Projection.set("sparse".equals(projection) ? BrightBoxVmSupport.STATUS_FIELDS : null);
+        try {
+            JsonStreams.forEach(response("/1.0/servers", servers), Server.class, new JsonStreams.ElementHandler<Server>() {
+                @Override public void handle(Server server) throws CloudException, InternalException {
+                    blackhole.consume(new ResourceStatus(server.getId(), vmSupport.toVmState(server.getStatus())));
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
+        }
+    }
+
+    @Benchmark
+    public void listImages(final Blackhole blackhole) throws Exception {
+        Projection previous = Projection.set("sparse".equals(projection) ? BrightBoxMachineImageSupport.IMAGE_FIELDS : null);
+        try {
+            JsonStreams.forEach(response("/1.0/images", images), Image.class, new JsonStreams.ElementHandler<Image>() {
+                @Override public void handle(Image image) throws CloudException, InternalException {
+                    blackhole.consume(imageSupport.toMachineImage(image));
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
+        }
+    }
+}
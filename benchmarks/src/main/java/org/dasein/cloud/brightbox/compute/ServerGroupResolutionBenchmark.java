@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of the firewall ids of every server of a listing from the server groups of the account. The
+ * <code>scan</code> benchmark checks every group of the account against the groups of each server, as
+ * {@link BrightBoxVmSupport#toVirtualMachine(Server, Map)} did before it was given an index; <code>indexed</code>
+ * builds the group index once and looks up the groups of each server. Scores are per listing.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class ServerGroupResolutionBenchmark {
+    @Param({ "5000" })
+    public int servers;
+
+    @Param({ "20", "200", "1000" })
+    public int groups;
+
+    private List<Server>      serverList;
+    private List<ServerGroup> serverGroups;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        serverList = Fixtures.servers(servers);
+        serverGroups = Fixtures.serverGroups(groups);
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for( Server server : serverList ) {
+            List<ServerGroup> vmServerGroups = server.getServerGroups();
+            for( ServerGroup serverGroup : serverGroups ) {
+                if( vmServerGroups.contains(serverGroup) ) {
+                    blackhole.consume(serverGroup.getFirewallPolicy().getId());
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole) {
+        Map<String, String> firewallIds = BrightBoxVmSupport.toFirewallIdsByGroup(serverGroups);
+
+        for( Server server : serverList ) {
+            for( ServerGroup serverGroup : server.getServerGroups() ) {
+                String firewallId = firewallIds.get(serverGroup.getId());
+                if( firewallId != null ) {
+                    blackhole.consume(firewallId);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.network;
+
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.benchmarks.Fixtures;
+import org.dasein.cloud.brightbox.benchmarks.OfflineCloud;
+import org.dasein.cloud.network.FirewallRule;
+import org.dasein.cloud.network.IpAddress;
+import org.dasein.cloud.network.LoadBalancer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of Brightbox firewall policies, load balancers and cloud IPs into their Dasein counterparts, measured
+ * through the public lookups of the support classes with the resources served from memory by {@link OfflineCloud}.
+ * Each invocation looks up the next resource of a fixture of {@link #size} resources, so scores are per resource;
+ * every firewall policy carries four rules, one of which expands into a port list.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+public class NetworkConversionBenchmark {
+    @Param({ "100", "10000", "100000" })
+    public int size;
+
+    private BrightBoxFirewallSupport     firewallSupport;
+    private BrightBoxLoadBalancerSupport loadBalancerSupport;
+    private BrightBoxIpAddressSupport    ipAddressSupport;
+    private String[]                     policyIds;
+    private String[]                     loadBalancerIds;
+    private String[]                     cloudIpIds;
+    private int                          next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        OfflineCloud provider = Fixtures.connect();
+
+        firewallSupport = new BrightBoxFirewallSupport(provider);
+        loadBalancerSupport = new BrightBoxLoadBalancerSupport(provider);
+        ipAddressSupport = new BrightBoxIpAddressSupport(provider);
+        policyIds = new String[size];
+        loadBalancerIds = new String[size];
+        cloudIpIds = new String[size];
+        List<FirewallPolicy> policies = Fixtures.firewallPolicies(size);
+        List<org.dasein.cloud.brightbox.api.model.LoadBalancer> loadBalancers = Fixtures.loadBalancers(size);
+        List<CloudIp> cloudIps = Fixtures.cloudIps(size);
+        for( int i = 0; i < size; i++ ) {
+            policyIds[i] = policies.get(i).getId();
+            provider.serve(FirewallPolicy.class, policyIds[i], policies.get(i));
+            loadBalancerIds[i] = loadBalancers.get(i).getId();
+            provider.serve(org.dasein.cloud.brightbox.api.model.LoadBalancer.class, loadBalancerIds[i], loadBalancers.get(i));
+            cloudIpIds[i] = cloudIps.get(i).getId();
+            provider.serve(CloudIp.class, cloudIpIds[i], cloudIps.get(i));
+        }
+    }
+
+    private int next() {
+        int i = next++;
+
+        if( next == size ) {
+            next = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public Iterable<FirewallRule> getRules() throws Exception {
+        return firewallSupport.getRules(policyIds[next()]);
+    }
+
+    @Benchmark
+    public LoadBalancer getLoadBalancer() throws Exception {
+        return loadBalancerSupport.getLoadBalancer(loadBalancerIds[next()]);
+    }
+
+    @Benchmark
+    public IpAddress getIpAddress() throws Exception {
+        return ipAddressSupport.getIpAddress(cloudIpIds[next()]);
+    }
+}
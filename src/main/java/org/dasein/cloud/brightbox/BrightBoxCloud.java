@@ -20,9 +20,8 @@
 package org.dasein.cloud.brightbox;
 
 import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.internal.bind.DateTypeAdapter;
-import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.dasein.cloud.AbstractCloud;
@@ -30,27 +29,36 @@ import org.dasein.cloud.CloudException;
 import org.dasein.cloud.ContextRequirements;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.ProviderContext;
-import org.dasein.cloud.brightbox.api.AuthenticationService;
+import org.dasein.cloud.brightbox.api.AccountRateLimits;
+import org.dasein.cloud.brightbox.api.ApiMetrics;
+import org.dasein.cloud.brightbox.api.AsyncCloudApiService;
 import org.dasein.cloud.brightbox.api.CloudApiService;
+import org.dasein.cloud.brightbox.api.CloudApiServiceHolder;
+import org.dasein.cloud.brightbox.api.CoalescingClient;
+import org.dasein.cloud.brightbox.api.ConditionalCacheClient;
+import org.dasein.cloud.brightbox.api.ContextProperties;
+import org.dasein.cloud.brightbox.api.DecodePoolConverter;
 import org.dasein.cloud.brightbox.api.ErrorHandler;
-import org.dasein.cloud.brightbox.api.model.Token;
+import org.dasein.cloud.brightbox.api.IsoDateTypeAdapter;
+import org.dasein.cloud.brightbox.api.MeteringClient;
+import org.dasein.cloud.brightbox.api.ModelTypeAdapterFactory;
+import org.dasein.cloud.brightbox.api.PooledHttpClient;
+import org.dasein.cloud.brightbox.api.RetryingClient;
+import org.dasein.cloud.brightbox.api.SampledWireLogClient;
+import org.dasein.cloud.brightbox.api.ServerGroupIndex;
 import org.dasein.cloud.brightbox.compute.BrightBoxComputeServices;
 import org.dasein.cloud.brightbox.dc.Zones;
 import org.dasein.cloud.brightbox.network.BrightBoxNetworkServices;
 import org.dasein.cloud.compute.ComputeServices;
 import org.dasein.cloud.network.NetworkServices;
 import org.dasein.cloud.platform.PlatformServices;
-import org.dasein.cloud.util.Cache;
-import org.dasein.cloud.util.CacheLevel;
-import org.dasein.util.uom.time.Second;
-import org.dasein.util.uom.time.TimePeriod;
-import retrofit.RequestInterceptor;
 import retrofit.RestAdapter;
+import retrofit.client.Client;
+import retrofit.converter.Converter;
 import retrofit.converter.GsonConverter;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -85,14 +93,39 @@ public class BrightBoxCloud extends AbstractCloud {
         return Logger.getLogger("dasein.cloud.brightbox.std." + pkg + getLastItem(cls.getName()));
     }
 
-    static public @Nonnull RestAdapter.Log getWireLog(@Nonnull final Class<?> cls) {
+    static public @Nonnull Logger getWireLogger(@Nonnull Class<?> cls) {
+        return Logger.getLogger("dasein.cloud.brightbox.wire." + getLastItem(cls.getPackage().getName()) + "." + getLastItem(cls.getName()));
+    }
+
+    static public @Nonnull RestAdapter.Log getWireLog(@Nonnull Class<?> cls) {
+        final Logger wire = getWireLogger(cls);
+        final Level level = ( wire.isDebugEnabled() ? Level.DEBUG : Level.INFO );
+
         return new RestAdapter.Log() {
             @Override public void log(String message) {
-                Logger.getLogger("dasein.cloud.brightbox.wire." + getLastItem(cls.getPackage().getName()) + "." + getLastItem(cls.getName())).log(Level.DEBUG, message);
+                wire.log(level, message);
             }
         };
     }
 
+    /**
+     * Maps the effective level of the wire logger to the amount of detail Retrofit logs. Nothing is logged at INFO,
+     * the usual root level; anything below FULL keeps Retrofit from buffering and formatting every response body.
+     * @param wire the wire logger
+     * @return FULL at TRACE, BASIC at DEBUG, NONE otherwise
+     */
+    static public @Nonnull RestAdapter.LogLevel getWireLogLevel(@Nonnull Logger wire) {
+        if( wire.isTraceEnabled() ) {
+            return RestAdapter.LogLevel.FULL;
+        }
+        else if( wire.isDebugEnabled() ) {
+            return RestAdapter.LogLevel.BASIC;
+        }
+        return RestAdapter.LogLevel.NONE;
+    }
+
+    static private final Logger wire = getWireLogger(BrightBoxCloud.class);
+
     public BrightBoxCloud() {
     }
 
@@ -113,19 +146,45 @@ public class BrightBoxCloud extends AbstractCloud {
         );
     }
 
+    // created once per provider so that the capabilities and other state cached by the supports survive between calls
+    private transient volatile Zones                    dataCenterServices;
+    private transient volatile BrightBoxComputeServices computeServices;
+    private transient volatile BrightBoxNetworkServices networkServices;
+
     @Override
     public @Nonnull Zones getDataCenterServices() {
-        return new Zones(this);
+        if( dataCenterServices == null ) {
+            synchronized( this ) {
+                if( dataCenterServices == null ) {
+                    dataCenterServices = new Zones(this);
+                }
+            }
+        }
+        return dataCenterServices;
     }
 
     @Override
     public @Nullable ComputeServices getComputeServices() {
-        return new BrightBoxComputeServices(this);
+        if( computeServices == null ) {
+            synchronized( this ) {
+                if( computeServices == null ) {
+                    computeServices = new BrightBoxComputeServices(this);
+                }
+            }
+        }
+        return computeServices;
     }
 
     @Override
     public @Nullable NetworkServices getNetworkServices() {
-        return new BrightBoxNetworkServices(this);
+        if( networkServices == null ) {
+            synchronized( this ) {
+                if( networkServices == null ) {
+                    networkServices = new BrightBoxNetworkServices(this);
+                }
+            }
+        }
+        return networkServices;
     }
 
     @Override
@@ -142,74 +201,167 @@ public class BrightBoxCloud extends AbstractCloud {
     }
 
     /**
-     * Requests a new authentication token or returns a cached one
+     * Returns the current authentication token, requesting a new one if it has expired
      * @return authentication token
      * @throws InternalException
      * @throws CloudException
      */
     public @Nonnull String authenticate() throws InternalException, CloudException {
-        ProviderContext ctx = getContext();
-        if( ctx == null ) {
-            throw new InternalException("No context is present for the authenticate call");
-        }
-        Cache<String> cache = Cache.getInstance(this, "tokens", String.class, CacheLevel.REGION_ACCOUNT);
-        Iterable<String> tokens = cache.get(ctx);
-        if( tokens != null ) {
-            String token = tokens.iterator().next();
-            if( token != null ) {
-                return token;
-            }
-        }
-        // nothing in the cache, request a new token
-        RestAdapter adapter = getRestAdapterBuilder().build();
-        AuthenticationService service = adapter.create(AuthenticationService.class);
-        byte[][] keys = ( byte[][] ) getContext().getConfigurationValue("apiKey");
-        String clientId = new String(keys[0]);
-        String clientSecret = new String(keys[1]);
-        String authorization = "Basic " + Base64.encodeBase64String((clientId + ":" + clientSecret).getBytes());
-        Token token = service.getToken(authorization, clientId, "none");
-        if( token != null ) {
-            cache = Cache.getInstance(this, "tokens", String.class, CacheLevel.REGION_ACCOUNT, new TimePeriod<Second>(token.getExpiresIn(), TimePeriod.SECOND));
-            cache.put(ctx, Arrays.asList(token.getAccessToken()));
-            return token.getAccessToken();
-        }
-        throw new CloudException("Unable to authenticate");
+        return getServiceHolder().getTokenManager().getToken();
     }
 
     /**
-     * Return transport service instance
+     * Return transport service instance. The service proxy is shared by all providers connected to the same
+     * endpoint, account, region and API key.
      * @return
      * @throws CloudException
      * @throws InternalException
      */
     public CloudApiService getCloudApiService() throws CloudException, InternalException {
-        final String token = authenticate();
-        RequestInterceptor interceptor = new RequestInterceptor() {
-            @Override public void intercept(RequestFacade request) {
-                request.addHeader("Authorization", "OAuth " + token);
+        CloudApiServiceHolder holder = getServiceHolder();
+        holder.getTokenManager().getToken();
+        return holder.getService();
+    }
+
+    /**
+     * Return the asynchronous transport service instance, which runs each call on a bounded executor
+     * shared by all providers connected to the same endpoint, account, region and API key.
+     * @return
+     * @throws CloudException
+     * @throws InternalException
+     */
+    public @Nonnull AsyncCloudApiService getAsyncCloudApiService() throws CloudException, InternalException {
+        CloudApiServiceHolder holder = getServiceHolder();
+        holder.getTokenManager().getToken();
+        return holder.getAsyncService();
+    }
+
+    /**
+     * Return the call counters, error counts, byte counts and latency histograms of every API endpoint used
+     * by providers connected to the same endpoint, account, region and API key. They are also published over JMX.
+     * @return the API metrics of this context
+     * @throws InternalException
+     */
+    public @Nonnull ApiMetrics getApiMetrics() throws InternalException {
+        return getServiceHolder().getApiMetrics();
+    }
+
+    /**
+     * Return the mapping between server groups and firewall policies shared by all providers connected to the same
+     * endpoint, account, region and API key. It is cached for a short time and dropped by any call that may change it.
+     * @return the server group index of this context
+     * @throws CloudException
+     * @throws InternalException
+     */
+    public @Nonnull ServerGroupIndex getServerGroupIndex() throws CloudException, InternalException {
+        CloudApiServiceHolder holder = getServiceHolder();
+        holder.getTokenManager().getToken();
+        return holder.getServerGroupIndex();
+    }
+
+    // the holder this provider holds a reference on, released by close()
+    private transient volatile CloudApiServiceHolder serviceHolder;
+    private transient volatile boolean               closed;
+
+    private @Nonnull CloudApiServiceHolder getServiceHolder() throws InternalException {
+        CloudApiServiceHolder holder = serviceHolder;
+        if( holder != null ) {
+            return holder;
+        }
+        synchronized( this ) {
+            if( closed ) {
+                // a reference taken now would never be released
+                throw new InternalException("The provider has been closed");
             }
-        };
-        RestAdapter adapter = getRestAdapterBuilder()
-                .setRequestInterceptor(interceptor)
-                .build();
-        return adapter.create(CloudApiService.class);
-    }
-
-    private transient volatile RestAdapter.Builder restAdapter;
-
-    private RestAdapter.Builder getRestAdapterBuilder() {
-        if( restAdapter == null ) {
-            GsonBuilder builder = new GsonBuilder()
-                    .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                    .registerTypeAdapter(Date.class, new DateTypeAdapter());
-            restAdapter = new RestAdapter.Builder()
-                    .setEndpoint(getContext().getCloud().getEndpoint())
-                    .setConverter(new GsonConverter(builder.create()))
-                    .setLogLevel(RestAdapter.LogLevel.FULL)
-                    .setLog(getWireLog(BrightBoxCloud.class))
-                    .setErrorHandler(new ErrorHandler());
-        }
-        return restAdapter;
+            if( serviceHolder == null ) {
+                ProviderContext ctx = getContext();
+                if( ctx == null ) {
+                    throw new NoContextException();
+                }
+                // the adapter is only built by the thread that creates the holder
+                serviceHolder = CloudApiServiceHolder.acquire(ctx, new CloudApiServiceHolder.RestAdapterFactory() {
+                    @Override public @Nonnull RestAdapter.Builder newRestAdapterBuilder(@Nonnull PooledHttpClient transport, @Nonnull ApiMetrics apiMetrics) {
+                        return getRestAdapterBuilder(transport, apiMetrics);
+                    }
+                });
+            }
+            return serviceHolder;
+        }
+    }
+
+    /**
+     * @return true once {@link #close()} has been called; the API service can no longer be used
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops watching virtual machine states and releases the API service of this provider. The service of a context
+     * is shut down once every provider using it has been closed.
+     */
+    @Override
+    public void close() {
+        CloudApiServiceHolder holder;
+        synchronized( this ) {
+            closed = true;
+            holder = serviceHolder;
+            serviceHolder = null;
+        }
+        BrightBoxComputeServices compute = computeServices;
+        if( compute != null ) {
+            compute.close();
+        }
+        if( holder != null ) {
+            holder.release();
+        }
+        super.close();
+    }
+
+    static private final Gson gson = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .registerTypeAdapter(Date.class, new IsoDateTypeAdapter())
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+
+    /**
+     * @return the Gson instance configured for the Brightbox API model, shared by all providers
+     */
+    static public @Nonnull Gson getGson() {
+        return gson;
+    }
+
+    private transient volatile Converter converter;
+
+    private RestAdapter.Builder getRestAdapterBuilder(@Nonnull PooledHttpClient transport, @Nonnull ApiMetrics apiMetrics) {
+        if( converter == null ) {
+            converter = new DecodePoolConverter(new GsonConverter(gson));
+        }
+        ProviderContext ctx = getContext();
+        Client client = new MeteringClient(transport, apiMetrics);
+        RestAdapter.LogLevel logLevel;
+        int sampleRate = ContextProperties.getInt(ctx, SampledWireLogClient.WIRE_LOG_SAMPLE_RATE, 0);
+        if( sampleRate > 0 ) {
+            // sampled requests are logged by the client, Retrofit itself must not touch the bodies
+            client = new SampledWireLogClient(client, wire, sampleRate,
+                    ContextProperties.getInt(ctx, SampledWireLogClient.WIRE_LOG_MAX_BODY_BYTES, SampledWireLogClient.DEFAULT_WIRE_LOG_MAX_BODY_BYTES));
+            logLevel = RestAdapter.LogLevel.NONE;
+        }
+        else {
+            logLevel = getWireLogLevel(wire);
+        }
+        // wraps the wire log, so that every attempt is sampled and logged on its own
+        client = new RetryingClient(client, ctx, AccountRateLimits.getInstance(ctx), apiMetrics.getRetryMetrics());
+        client = new ConditionalCacheClient(client, ctx, apiMetrics.getResponseCacheMetrics());
+        // outermost, so that coalesced callers also share the retries of the leading request
+        client = new CoalescingClient(client, ctx, apiMetrics.getCoalescingMetrics());
+        return new RestAdapter.Builder()
+                .setEndpoint(ctx.getCloud().getEndpoint())
+                .setClient(client)
+                .setConverter(converter)
+                .setLogLevel(logLevel)
+                .setLog(getWireLog(BrightBoxCloud.class))
+                .setErrorHandler(new ErrorHandler());
     }
 
     @Override
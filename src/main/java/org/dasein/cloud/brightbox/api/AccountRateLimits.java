@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side rate limits shared by every context of one Brightbox account, with separate budgets for read (GET)
+ * and mutating calls. Limits are off unless a rate is set; the values of the first context seen for an account apply,
+ * and a later context of the account with other values is warned about, as its own are ignored.
+ * <p>Context properties:</p>
+ * <ul>
+ *     <li>{@value #READ_RATE_LIMIT} - GET calls per second (default 0, unlimited)</li>
+ *     <li>{@value #READ_RATE_BURST} - GET calls allowed at once after an idle period (default: one second's worth)</li>
+ *     <li>{@value #WRITE_RATE_LIMIT} - mutating calls per second (default 0, unlimited)</li>
+ *     <li>{@value #WRITE_RATE_BURST} - mutating calls allowed at once after an idle period (default: one second's worth)</li>
+ *     <li>{@value #RATE_LIMIT_TIMEOUT} - milliseconds a call may wait for its turn (default {@value #DEFAULT_RATE_LIMIT_TIMEOUT})</li>
+ * </ul>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class AccountRateLimits {
+    static private final Logger logger = BrightBoxCloud.getLogger(AccountRateLimits.class);
+
+    static public final String READ_RATE_LIMIT    = "readRateLimit";
+    static public final String READ_RATE_BURST    = "readRateBurst";
+    static public final String WRITE_RATE_LIMIT   = "writeRateLimit";
+    static public final String WRITE_RATE_BURST   = "writeRateBurst";
+    static public final String RATE_LIMIT_TIMEOUT = "rateLimitTimeout";
+
+    static public final long DEFAULT_RATE_LIMIT_TIMEOUT = 30000L;
+
+    static private final ConcurrentMap<String, AccountRateLimits> limits = new ConcurrentHashMap<String, AccountRateLimits>();
+
+    /**
+     * @param ctx a context of the account
+     * @return the limits shared by all contexts of the account
+     */
+    static public @Nonnull AccountRateLimits getInstance(@Nonnull ProviderContext ctx) {
+        String key = ctx.getCloud().getEndpoint() + "|" + ctx.getAccountNumber();
+        AccountRateLimits result = limits.get(key);
+
+        if( result == null ) {
+            result = new AccountRateLimits(ctx);
+            AccountRateLimits existing = limits.putIfAbsent(key, result);
+            if( existing != null ) {
+                result = existing;
+            }
+        }
+        String settings = getSettings(ctx);
+        if( !result.settings.equals(settings) ) {
+            logger.warn("Rate limits of account " + ctx.getAccountNumber() + " are already set to " + result.settings
+                    + ", ignoring " + settings + " of this context");
+        }
+        return result;
+    }
+
+    /**
+     * @return the rate limit settings of the context, as compared between contexts of one account
+     */
+    static private @Nonnull String getSettings(@Nonnull ProviderContext ctx) {
+        double readRate = ContextProperties.getDouble(ctx, READ_RATE_LIMIT, 0);
+        double writeRate = ContextProperties.getDouble(ctx, WRITE_RATE_LIMIT, 0);
+
+        return READ_RATE_LIMIT + "=" + readRate + ", " + READ_RATE_BURST + "=" + ContextProperties.getDouble(ctx, READ_RATE_BURST, readRate)
+                + ", " + WRITE_RATE_LIMIT + "=" + writeRate + ", " + WRITE_RATE_BURST + "=" + ContextProperties.getDouble(ctx, WRITE_RATE_BURST, writeRate)
+                + ", " + RATE_LIMIT_TIMEOUT + "=" + ContextProperties.getLong(ctx, RATE_LIMIT_TIMEOUT, DEFAULT_RATE_LIMIT_TIMEOUT);
+    }
+
+    static private @Nullable RateLimiter createLimiter(@Nonnull ProviderContext ctx, @Nonnull String rateName, @Nonnull String burstName) {
+        double rate = ContextProperties.getDouble(ctx, rateName, 0);
+
+        if( rate <= 0 ) {
+            return null;
+        }
+        return new RateLimiter(rate, ContextProperties.getDouble(ctx, burstName, rate));
+    }
+
+    private final RateLimiter readLimiter;
+    private final RateLimiter writeLimiter;
+    private final long        timeout;
+    private final String      settings;
+
+    private AccountRateLimits(@Nonnull ProviderContext ctx) {
+        settings = getSettings(ctx);
+        readLimiter = createLimiter(ctx, READ_RATE_LIMIT, READ_RATE_BURST);
+        writeLimiter = createLimiter(ctx, WRITE_RATE_LIMIT, WRITE_RATE_BURST);
+        timeout = Math.max(0L, ContextProperties.getLong(ctx, RATE_LIMIT_TIMEOUT, DEFAULT_RATE_LIMIT_TIMEOUT));
+    }
+
+    /**
+     * Waits for the turn of a call.
+     * @param read true for a GET call, false for a mutating one
+     * @throws CloudException no permit became available within the timeout, or the thread was interrupted
+     */
+    public void acquire(boolean read) throws CloudException {
+        RateLimiter limiter = ( read ? readLimiter : writeLimiter );
+
+        if( limiter == null ) {
+            return;
+        }
+        try {
+            if( !limiter.acquire(timeout, TimeUnit.MILLISECONDS) ) {
+                throw new CloudException(CloudErrorType.THROTTLING, 429, "Too Many Requests",
+                        "Client-side " + (read ? "read" : "write") + " rate limit not available within " + timeout + "ms");
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new CloudException(CloudErrorType.COMMUNICATION, 0, "Interrupted", "Interrupted while waiting for the rate limit");
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import retrofit.http.DELETE;
+import retrofit.http.GET;
+import retrofit.http.HEAD;
+import retrofit.http.POST;
+import retrofit.http.PUT;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The counters of one {@link CloudApiServiceHolder}: per-endpoint calls, errors, bytes and latencies recorded by the
+ * service proxy and {@link MeteringClient}, and the counters of the retrying, coalescing and caching clients.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class ApiMetrics implements ApiMetricsMXBean {
+    static private final Logger logger = BrightBoxCloud.getLogger(ApiMetrics.class);
+
+    static public final String JMX_DOMAIN = "org.dasein.cloud.brightbox";
+
+    static private @Nonnull String getEndpoint(@Nonnull Method method) {
+        if( method.isAnnotationPresent(GET.class) ) {
+            return "GET " + method.getAnnotation(GET.class).value();
+        }
+        if( method.isAnnotationPresent(POST.class) ) {
+            return "POST " + method.getAnnotation(POST.class).value();
+        }
+        if( method.isAnnotationPresent(PUT.class) ) {
+            return "PUT " + method.getAnnotation(PUT.class).value();
+        }
+        if( method.isAnnotationPresent(DELETE.class) ) {
+            return "DELETE " + method.getAnnotation(DELETE.class).value();
+        }
+        if( method.isAnnotationPresent(HEAD.class) ) {
+            return "HEAD " + method.getAnnotation(HEAD.class).value();
+        }
+        return method.getName();
+    }
+
+    private final RetryMetrics                 retryMetrics         = new RetryMetrics();
+    private final CoalescingMetrics            coalescingMetrics    = new CoalescingMetrics();
+    private final ResponseCacheMetrics         responseCacheMetrics = new ResponseCacheMetrics();
+    private final Map<Method, EndpointMetrics> endpointsByMethod;
+    private final List<EndpointMetrics>        endpoints;
+    private ObjectName                         objectName;
+
+    public ApiMetrics() {
+        Map<String, EndpointMetrics> byName = new HashMap<String, EndpointMetrics>();
+        Map<Method, EndpointMetrics> byMethod = new HashMap<Method, EndpointMetrics>();
+
+        // built up front, so recording a call is a lookup in an unchanging map
+        for( Method method : CloudApiService.class.getMethods() ) {
+            String endpoint = getEndpoint(method);
+            EndpointMetrics metrics = byName.get(endpoint);
+
+            if( metrics == null ) {
+                metrics = new EndpointMetrics(endpoint);
+                byName.put(endpoint, metrics);
+            }
+            byMethod.put(method, metrics);
+        }
+        endpointsByMethod = byMethod;
+        endpoints = Collections.unmodifiableList(new ArrayList<EndpointMetrics>(byName.values()));
+    }
+
+    /**
+     * @param method a {@link CloudApiService} method
+     * @return the metrics of its endpoint, or null for any other method
+     */
+    @Nullable EndpointMetrics getEndpointMetrics(@Nullable Method method) {
+        return ( method == null ? null : endpointsByMethod.get(method) );
+    }
+
+    /**
+     * @return a snapshot of every endpoint called so far, the one with the most total time spent first
+     */
+    public @Nonnull List<EndpointSnapshot> snapshot() {
+        List<EndpointSnapshot> result = new ArrayList<EndpointSnapshot>();
+
+        for( EndpointMetrics metrics : endpoints ) {
+            EndpointSnapshot s = metrics.snapshot();
+            if( s.getCalls() > 0 ) {
+                result.add(s);
+            }
+        }
+        Collections.sort(result, new Comparator<EndpointSnapshot>() {
+            @Override public int compare(EndpointSnapshot a, EndpointSnapshot b) {
+                return Double.compare(b.getTotalLatency(), a.getTotalLatency());
+            }
+        });
+        return result;
+    }
+
+    public @Nonnull RetryMetrics getRetryMetrics() {
+        return retryMetrics;
+    }
+
+    public @Nonnull CoalescingMetrics getCoalescingMetrics() {
+        return coalescingMetrics;
+    }
+
+    public @Nonnull ResponseCacheMetrics getResponseCacheMetrics() {
+        return responseCacheMetrics;
+    }
+
+    @Override
+    public EndpointSnapshot[] getEndpoints() {
+        List<EndpointSnapshot> list = snapshot();
+
+        return list.toArray(new EndpointSnapshot[list.size()]);
+    }
+
+    @Override
+    public long getRetries() {
+        return retryMetrics.getRetries();
+    }
+
+    @Override
+    public long getCoalescedRequests() {
+        return coalescingMetrics.getHits();
+    }
+
+    @Override
+    public long getNotModifiedResponses() {
+        return responseCacheMetrics.getNotModified();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server. Failures are logged and otherwise ignored.
+     * @param ctx the context the metrics belong to
+     * @param apiKeyId the public part of the API key the metrics belong to
+     */
+    synchronized void register(@Nonnull ProviderContext ctx, @Nonnull String apiKeyId) {
+        try {
+            Hashtable<String, String> properties = new Hashtable<String, String>();
+            properties.put("type", "ApiMetrics");
+            properties.put("endpoint", ObjectName.quote(String.valueOf(ctx.getCloud().getEndpoint())));
+            properties.put("account", ObjectName.quote(String.valueOf(ctx.getAccountNumber())));
+            properties.put("region", ObjectName.quote(String.valueOf(ctx.getRegionId())));
+            properties.put("client", ObjectName.quote(apiKeyId));
+            ObjectName name = new ObjectName(JMX_DOMAIN, properties);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+        }
+        catch( Exception e ) {
+            logger.warn("Unable to register API metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if they were registered.
+     */
+    synchronized void unregister() {
+        if( objectName == null ) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        }
+        catch( Exception e ) {
+            logger.warn("Unable to unregister API metrics from JMX: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return "retry[" + retryMetrics + "], coalescing[" + coalescingMetrics + "], responseCache[" + responseCacheMetrics + "], endpoints"
+                + Arrays.toString(getEndpoints());
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+/**
+ * JMX view of the {@link ApiMetrics} of one Brightbox context, registered under
+ * <code>{@value ApiMetrics#JMX_DOMAIN}:type=ApiMetrics</code> with the endpoint, account, region and client (the
+ * public part of the API key) as key properties.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public interface ApiMetricsMXBean {
+    /**
+     * @return a snapshot of every endpoint called so far, the one with the most total time spent first
+     */
+    EndpointSnapshot[] getEndpoints();
+
+    long getRetries();
+
+    long getCoalescedRequests();
+
+    long getNotModifiedResponses();
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.CloudIpDestination;
+import org.dasein.cloud.brightbox.api.model.CreateCloudIp;
+import org.dasein.cloud.brightbox.api.model.CreateFirewallRule;
+import org.dasein.cloud.brightbox.api.model.CreateLoadBalancer;
+import org.dasein.cloud.brightbox.api.model.CreateServer;
+import org.dasein.cloud.brightbox.api.model.DatabaseServerType;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.FirewallRule;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.LoadBalancer;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+import org.dasein.cloud.brightbox.api.model.ServerGroupServer;
+import org.dasein.cloud.brightbox.api.model.ServerType;
+import org.dasein.cloud.brightbox.api.model.Zone;
+import retrofit.client.Response;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Asynchronous twin of {@link CloudApiService}. Every method issues the call of the same name and parameters
+ * on a bounded executor and returns immediately; failures are reported by {@link Future#get()} and can be
+ * unwrapped with {@link AsyncResults#get(Future)}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public interface AsyncCloudApiService {
+    // zones and regions
+    Future<List<Zone>> listZones();
+
+    // images
+    Future<List<Image>> listImages();
+    Future<Response> streamImages();
+    Future<Image> getImage(String id);
+    Future<Response> deleteImage(String id);
+
+    // servers
+    Future<Server> createServer(@Nonnull String imageId, @Nullable String name, @Nullable String serverTypeId, @Nullable String zone, @Nullable String userData, @Nullable List<String> serverGroupIds);
+    Future<Server> createServer(CreateServer server);
+    Future<List<Server>> listServers();
+    Future<Response> streamServers();
+    Future<Server> getServer(String id);
+    Future<Server> updateServer(String id, @Nullable String name, @Nullable String userData, @Nullable String compatibilityMode);
+    Future<Response> deleteServer(String id);
+    Future<Response> startServer(String id);
+    Future<Response> stopServer(String id);
+    Future<Response> rebootServer(String id);
+    Future<Response> resetServer(String id);
+    Future<Response> shutdownServer(String id);
+    Future<Response> activateConsole(String id);
+    Future<Response> snapshotServer(String id);
+
+    // server types
+    Future<List<ServerType>> listServerTypes();
+
+    // server groups
+    Future<List<ServerGroup>> listServerGroups();
+    Future<Response> streamServerGroups();
+    Future<ServerGroup> createServerGroup(@Nullable String name, @Nullable String description);
+    Future<ServerGroup> getServerGroup(@Nonnull String id);
+    Future<ServerGroup> addServersToGroup(@Nonnull String id, @Nonnull List<ServerGroupServer> servers);
+    Future<ServerGroup> removeServersFromGroup(@Nonnull String id, @Nonnull List<ServerGroupServer> servers);
+    Future<ServerGroup> deleteServerGroup(@Nonnull String id);
+
+    // load balancers
+    Future<List<LoadBalancer>> listLoadBalancers();
+    Future<LoadBalancer> createLoadBalancer(CreateLoadBalancer loadBalancer);
+    Future<LoadBalancer> getLoadBalancer(@Nonnull String id);
+    Future<LoadBalancer> updateLoadBalancer(@Nonnull String id, @Nonnull CreateLoadBalancer loadBalancer);
+    Future<LoadBalancer> addNodesToLoadBalancer(@Nonnull String id, @Nonnull CreateLoadBalancer loadBalancer);
+    Future<LoadBalancer> removeNodesFromLoadBalancer(@Nonnull String id, @Nonnull CreateLoadBalancer loadBalancer);
+    Future<LoadBalancer> addListenersToLoadBalancer(@Nonnull String id, @Nonnull CreateLoadBalancer loadBalancer);
+    Future<LoadBalancer> removeListenersFromLoadBalancer(@Nonnull String id, @Nonnull CreateLoadBalancer loadBalancer);
+    Future<Response> deleteLoadBalancer(@Nonnull String id);
+
+    // cloud ips
+    Future<List<CloudIp>> listCloudIps();
+    Future<Response> streamCloudIps();
+    Future<CloudIp> createCloudIp(@Nonnull CreateCloudIp cloudIp);
+    Future<CloudIp> getCloudIp(@Nonnull String id);
+    Future<CloudIp> updateCloudIp(@Nonnull String id, @Nonnull CreateCloudIp cloudIp);
+    Future<Response> deleteCloudIp(@Nonnull String id);
+    Future<Response> mapCloudIp(@Nonnull String id, @Nonnull CloudIpDestination destination);
+    Future<Response> unmapCloudIp(@Nonnull String id);
+
+    // database server types
+    Future<List<DatabaseServerType>> listDatabaseServerTypes();
+    Future<DatabaseServerType> getDatabaseServerType(@Nonnull String id);
+
+    // firewall
+    Future<List<FirewallPolicy>> listFirewallPolicies();
+    Future<Response> streamFirewallPolicies();
+    Future<FirewallPolicy> getFirewallPolicy(@Nonnull String id);
+    Future<FirewallPolicy> updateFirewallPolicy(@Nonnull String id, @Nonnull FirewallPolicy policy);
+    Future<FirewallPolicy> createFirewallPolicy(@Nonnull FirewallPolicy policy);
+    Future<Response> deleteFirewallPolicy(@Nonnull String id);
+    Future<FirewallPolicy> applyFirewallPolicyToServerGroup(String id, @Nonnull String serverGroupId);
+
+    Future<FirewallRule> getFirewallRule(@Nonnull String id);
+    Future<FirewallRule> createFirewallRule(@Nonnull CreateFirewallRule rule);
+    Future<FirewallRule> updateFirewallRule(@Nonnull String id, @Nonnull FirewallRule rule);
+    Future<Response> deleteFirewallRule(@Nonnull String id);
+}
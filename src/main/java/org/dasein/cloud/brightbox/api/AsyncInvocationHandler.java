@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Implements {@link AsyncCloudApiService} by submitting the matching {@link CloudApiService} call to an executor.
+ * The {@link Projection} of the submitting thread is applied to the call.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+class AsyncInvocationHandler implements InvocationHandler {
+    private final CloudApiService     service;
+    private final ExecutorService     executor;
+    private final Map<Method, Method> methods = new HashMap<Method, Method>();
+
+    AsyncInvocationHandler(@Nonnull CloudApiService service, @Nonnull ExecutorService executor) {
+        this.service = service;
+        this.executor = executor;
+        for( Method method : AsyncCloudApiService.class.getMethods() ) {
+            try {
+                methods.put(method, CloudApiService.class.getMethod(method.getName(), method.getParameterTypes()));
+            }
+            catch( NoSuchMethodException e ) {
+                throw new IllegalStateException("No synchronous counterpart for " + method, e);
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, final Object[] args) throws Throwable {
+        final Method target = methods.get(method);
+
+        if( target == null ) {
+            // Object methods
+            return method.invoke(this, args);
+        }
+        // the call is decoded as the submitting thread would have decoded it
+        final Projection projection = Projection.get();
+        return executor.submit(new Callable<Object>() {
+            @Override public Object call() throws Exception {
+                Projection previous = Projection.set(projection);
+                try {
+                    return target.invoke(service, args);
+                }
+                catch( InvocationTargetException e ) {
+                    Throwable cause = e.getCause();
+                    if( cause instanceof Exception ) {
+                        throw ( Exception ) cause;
+                    }
+                    throw ( Error ) cause;
+                }
+                finally {
+                    Projection.set(previous);
+                }
+            }
+        });
+    }
+}
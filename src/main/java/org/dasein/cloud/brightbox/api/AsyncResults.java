@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Waits for {@link AsyncCloudApiService} results and rethrows their failures as the exceptions the
+ * synchronous call would have thrown.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class AsyncResults {
+    private AsyncResults() { }
+
+    static public <T> T get(@Nonnull Future<T> future) throws CloudException, InternalException {
+        try {
+            return future.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InternalException("Interrupted while waiting for an API call", e);
+        }
+        catch( CancellationException e ) {
+            throw new InternalException("API call was cancelled", e);
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof CloudException ) {
+                throw ( CloudException ) cause;
+            }
+            else if( cause instanceof InternalException ) {
+                throw ( InternalException ) cause;
+            }
+            else if( cause instanceof RuntimeException ) {
+                throw ( RuntimeException ) cause;
+            }
+            else if( cause instanceof Error ) {
+                throw ( Error ) cause;
+            }
+            throw new InternalException(cause);
+        }
+    }
+}
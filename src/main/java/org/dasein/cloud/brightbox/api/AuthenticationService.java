@@ -18,6 +18,7 @@
 
 package org.dasein.cloud.brightbox.api;
 
+import org.dasein.cloud.CloudException;
 import org.dasein.cloud.brightbox.api.model.Token;
 import org.dasein.cloud.brightbox.api.model.TokenRequest;
 import retrofit.http.Body;
@@ -33,5 +34,5 @@ public interface AuthenticationService {
     @FormUrlEncoded
     @POST("/token")
     Token getToken(@Header("Authorization") String authorization, @Field("client_id") String clientId,
-            @Field("grant_type") String grantType);
+            @Field("grant_type") String grantType) throws CloudException;
 }
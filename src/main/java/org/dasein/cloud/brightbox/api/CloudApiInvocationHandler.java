@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.brightbox.UnauthorizedException;
+import retrofit.RetrofitError;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Wraps the Retrofit generated {@link CloudApiService}. A call rejected with {@link UnauthorizedException}
+ * forces one token refresh and is then replayed once with the new token. The rate limits of the account are
+ * applied by {@link RetryingClient} to the requests actually sent. The duration and outcome of each call is recorded
+ * in the {@link ApiMetrics} of its endpoint. Calls that may change the firewall policies of server groups drop the cached
+ * {@link ServerGroupIndex} when they complete, whether they succeeded or not.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+class CloudApiInvocationHandler implements InvocationHandler {
+    private final CloudApiService       delegate;
+    private final TokenManager          tokenManager;
+    private final ApiMetrics            metrics;
+    private final ServerGroupIndexCache serverGroupIndex;
+
+    CloudApiInvocationHandler(@Nonnull CloudApiService delegate, @Nonnull TokenManager tokenManager, @Nonnull ApiMetrics metrics, @Nonnull ServerGroupIndexCache serverGroupIndex) {
+        this.delegate = delegate;
+        this.tokenManager = tokenManager;
+        this.metrics = metrics;
+        this.serverGroupIndex = serverGroupIndex;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        EndpointMetrics endpoint = metrics.getEndpointMetrics(method);
+        long start = System.nanoTime();
+        try {
+            Object result = invokeWithToken(method, args);
+            if( endpoint != null ) {
+                endpoint.recordCall(System.nanoTime() - start, -1);
+            }
+            return result;
+        }
+        catch( Throwable t ) {
+            if( endpoint != null ) {
+                endpoint.recordCall(System.nanoTime() - start, getStatus(t));
+            }
+            throw t;
+        }
+        finally {
+            serverGroupIndex.afterCall(method);
+        }
+    }
+
+    static private int getStatus(@Nonnull Throwable t) {
+        if( t instanceof CloudException ) {
+            return (( CloudException ) t).getHttpCode();
+        }
+        if( t instanceof RetrofitError && (( RetrofitError ) t).getResponse() != null ) {
+            return (( RetrofitError ) t).getResponse().getStatus();
+        }
+        if( t instanceof InternalException ) {
+            // the error handler reports rejected requests as internal errors
+            return 400;
+        }
+        return 0;
+    }
+
+    private Object invokeWithToken(@Nonnull Method method, Object[] args) throws Throwable {
+        String token = tokenManager.getCurrentToken();
+        try {
+            return invokeDelegate(method, args);
+        }
+        catch( UnauthorizedException e ) {
+            tokenManager.refresh(token);
+            return invokeDelegate(method, args);
+        }
+    }
+
+    private Object invokeDelegate(@Nonnull Method method, Object[] args) throws Throwable {
+        Method previous = CurrentCall.set(method);
+        try {
+            return method.invoke(delegate, args);
+        }
+        catch( InvocationTargetException e ) {
+            throw e.getCause();
+        }
+        finally {
+            CurrentCall.set(previous);
+        }
+    }
+}
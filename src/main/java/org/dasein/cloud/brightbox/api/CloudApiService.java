@@ -44,6 +44,7 @@ import retrofit.http.GET;
 import retrofit.http.POST;
 import retrofit.http.PUT;
 import retrofit.http.Path;
+import retrofit.http.Streaming;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -51,6 +52,8 @@ import java.util.List;
 
 /**
  * Created by stas on 09/02/2015.
+ * <p>The <code>stream*</code> variants of the list calls return the raw response without buffering it;
+ * decode them with {@link JsonStreams#forEach}.</p>
  */
 public interface CloudApiService {
     String VERSION = "/1.0";
@@ -60,6 +63,7 @@ public interface CloudApiService {
 
     // images
     @GET(VERSION + "/images") List<Image> listImages() throws CloudException;
+    @Streaming @GET(VERSION + "/images") Response streamImages() throws CloudException;
     @GET(VERSION + "/images/{id}") Image getImage(@Path("id") String id) throws CloudException;
     @DELETE(VERSION + "/images/{id}") Response deleteImage(@Path("id") String id) throws CloudException;
 
@@ -72,6 +76,7 @@ public interface CloudApiService {
     @POST(SERVERS) Server createServer(@Body CreateServer server) throws CloudException;
 
     @GET(SERVERS) List<Server> listServers() throws CloudException;
+    @Streaming @GET(SERVERS) Response streamServers() throws CloudException;
     @GET(SERVERS_ID) Server getServer(@Path("id") String id) throws CloudException;
     @PUT(SERVERS_ID) Server updateServer(@Path("id") String id, @Nullable String name, @Nullable String userData, @Nullable String compatibilityMode) throws CloudException;
     @DELETE(SERVERS_ID) Response deleteServer(@Path("id") String id) throws CloudException;
@@ -90,6 +95,7 @@ public interface CloudApiService {
     final String SERVER_GROUPS = VERSION + "/server_groups";
     final String SERVER_GROUPS_ID = SERVER_GROUPS + "/{id}";
     @GET(SERVER_GROUPS) List<ServerGroup> listServerGroups() throws CloudException;
+    @Streaming @GET(SERVER_GROUPS) Response streamServerGroups() throws CloudException;
     @FormUrlEncoded
     @POST(SERVER_GROUPS) ServerGroup createServerGroup(@Field("name") @Nullable String name, @Field("description") @Nullable String description) throws CloudException;
     @GET(SERVER_GROUPS_ID) ServerGroup getServerGroup(@Path("id") @Nonnull String id) throws CloudException;
@@ -128,6 +134,8 @@ public interface CloudApiService {
     // cloud ips
     @GET(VERSION + "/cloud_ips")
     List<CloudIp> listCloudIps() throws CloudException;
+    @Streaming @GET(VERSION + "/cloud_ips")
+    Response streamCloudIps() throws CloudException;
     @POST(VERSION + "/cloud_ips")
     CloudIp createCloudIp(@Body @Nonnull CreateCloudIp cloudIp) throws CloudException;
     @GET(VERSION + "/cloud_ips/{id}")
@@ -152,6 +160,8 @@ public interface CloudApiService {
     final String FIREWALL_POLICIES_ID = FIREWALL_POLICIES + "/{id}";
     @GET(FIREWALL_POLICIES)
     List<FirewallPolicy> listFirewallPolicies() throws CloudException;
+    @Streaming @GET(FIREWALL_POLICIES)
+    Response streamFirewallPolicies() throws CloudException;
     @GET(FIREWALL_POLICIES_ID)
     FirewallPolicy getFirewallPolicy(@Path("id") @Nonnull String id) throws CloudException;
     @PUT(FIREWALL_POLICIES_ID)
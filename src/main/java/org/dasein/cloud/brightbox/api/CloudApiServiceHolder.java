@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.ConfigurationException;
+import retrofit.RequestInterceptor;
+import retrofit.RestAdapter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds a single {@link CloudApiService} proxy per endpoint, account, region and API key. The proxy is built once
+ * and reads the current OAuth token from the {@link TokenManager} through its request interceptor, so rotating
+ * the token is a simple reference swap rather than a rebuild of the {@link RestAdapter}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class CloudApiServiceHolder {
+    /**
+     * Builds the Retrofit adapter of a new holder. Called at most once per holder, and only by the thread that
+     * creates it.
+     */
+    public interface RestAdapterFactory {
+        /**
+         * @param transport the connection pool of the holder, which the client chain of the builder must end with
+         * @param apiMetrics the metrics the client chain and converter of the builder must update
+         * @return a fresh adapter builder
+         */
+        @Nonnull RestAdapter.Builder newRestAdapterBuilder(@Nonnull PooledHttpClient transport, @Nonnull ApiMetrics apiMetrics);
+    }
+
+    static private final ConcurrentMap<String, FutureTask<CloudApiServiceHolder>> holders = new ConcurrentHashMap<String, FutureTask<CloudApiServiceHolder>>();
+
+    /**
+     * @param ctx a context
+     * @return the public part of the API key of the context, or an empty string if it has none
+     */
+    static private @Nonnull String getApiKeyId(@Nonnull ProviderContext ctx) {
+        byte[][] keys;
+        try {
+            keys = ( byte[][] ) ctx.getConfigurationValue("apiKey");
+        }
+        catch( ClassCastException e ) {
+            keys = null;
+        }
+        return ( keys == null || keys.length < 1 || keys[0] == null ? "" : new String(keys[0]) );
+    }
+
+    static public @Nonnull String getKey(@Nonnull ProviderContext ctx) {
+        return ctx.getCloud().getEndpoint() + "|" + ctx.getAccountNumber() + "|" + ctx.getRegionId() + "|" + getApiKeyId(ctx);
+    }
+
+    /**
+     * Returns the holder for the given context with one more reference held on it, building it on first use. Each
+     * call must be matched by a {@link #release()} once the caller is done with the holder.
+     * @param ctx the context the holder is scoped to
+     * @param factory builds the adapter of the holder, only called if no holder exists yet for this context
+     * @return the shared holder for this context
+     * @throws ConfigurationException the context carries no API key
+     */
+    static public @Nonnull CloudApiServiceHolder acquire(@Nonnull ProviderContext ctx, @Nonnull RestAdapterFactory factory) throws ConfigurationException {
+        while( true ) {
+            CloudApiServiceHolder holder = getInstance(ctx, factory);
+            if( holder.retain() ) {
+                return holder;
+            }
+            // released by its last user, but not yet removed
+            remove(holder);
+        }
+    }
+
+    static private void remove(@Nonnull CloudApiServiceHolder holder) {
+        FutureTask<CloudApiServiceHolder> task = holders.get(holder.key);
+
+        if( task != null && task.isDone() ) {
+            try {
+                if( task.get() == holder ) {
+                    holders.remove(holder.key, task);
+                }
+            }
+            catch( Exception ignore ) { }
+        }
+    }
+
+    /**
+     * Returns the holder for the given context, building it on first use. Only the thread that reserves the key of
+     * the context builds the holder and its adapter; threads asking for the same key meanwhile wait for its result.
+     * No reference is taken on the holder, see {@link #acquire(ProviderContext, RestAdapterFactory)}.
+     * @param ctx the context the holder is scoped to
+     * @param factory builds the adapter of the holder, only called if no holder exists yet for this context
+     * @return the shared holder for this context
+     * @throws ConfigurationException the context carries no API key
+     */
+    static public @Nonnull CloudApiServiceHolder getInstance(@Nonnull final ProviderContext ctx, @Nonnull final RestAdapterFactory factory) throws ConfigurationException {
+        String key = getKey(ctx);
+        FutureTask<CloudApiServiceHolder> holder = holders.get(key);
+
+        if( holder == null ) {
+            FutureTask<CloudApiServiceHolder> creation = new FutureTask<CloudApiServiceHolder>(new Callable<CloudApiServiceHolder>() {
+                @Override public CloudApiServiceHolder call() throws Exception {
+                    ApiMetrics apiMetrics = new ApiMetrics();
+                    PooledHttpClient transport = new PooledHttpClient(ctx);
+                    try {
+                        return new CloudApiServiceHolder(ctx, factory.newRestAdapterBuilder(transport, apiMetrics), transport, apiMetrics);
+                    }
+                    catch( Exception e ) {
+                        transport.shutdown();
+                        throw e;
+                    }
+                }
+            });
+            holder = holders.putIfAbsent(key, creation);
+            if( holder == null ) {
+                holder = creation;
+                creation.run();
+            }
+        }
+        try {
+            return holder.get();
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ConfigurationException("Interrupted while waiting for the API service of " + ctx.getAccountNumber());
+        }
+        catch( ExecutionException e ) {
+            // a failed creation is not kept, so that a later call may try again
+            holders.remove(key, holder);
+            Throwable cause = e.getCause();
+            if( cause instanceof ConfigurationException ) {
+                throw ( ConfigurationException ) cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw ( RuntimeException ) cause;
+            }
+            if( cause instanceof Error ) {
+                throw ( Error ) cause;
+            }
+            throw new ConfigurationException(cause);
+        }
+    }
+
+    /**
+     * Looks up the holder for the given context without creating one.
+     * @param ctx the context the holder is scoped to
+     * @return the existing holder or null if no calls have been made in this context yet, or it is still being built
+     */
+    static public @Nullable CloudApiServiceHolder getExistingInstance(@Nonnull ProviderContext ctx) {
+        FutureTask<CloudApiServiceHolder> holder = holders.get(getKey(ctx));
+
+        if( holder == null || !holder.isDone() ) {
+            return null;
+        }
+        try {
+            return holder.get();
+        }
+        catch( Exception e ) {
+            return null;
+        }
+    }
+
+    static public final String ASYNC_POOL_SIZE  = "asyncPoolSize";
+    static public final String ASYNC_QUEUE_SIZE = "asyncQueueSize";
+
+    static public final int DEFAULT_ASYNC_POOL_SIZE  = 8;
+    static public final int DEFAULT_ASYNC_QUEUE_SIZE = 256;
+
+    private final String                key;
+    private final TokenManager          tokenManager;
+    private final CloudApiService       service;
+    private final PooledHttpClient      transport;
+    private final ApiMetrics            apiMetrics;
+    private final ServerGroupIndexCache serverGroupIndex;
+    private final int                   asyncPoolSize;
+    private final int                   asyncQueueSize;
+
+    private volatile AsyncCloudApiService asyncService;
+    private ThreadPoolExecutor            asyncExecutor;
+    private int                           references;
+    private boolean                       closed;
+
+    private CloudApiServiceHolder(@Nonnull ProviderContext ctx, @Nonnull RestAdapter.Builder builder, @Nonnull PooledHttpClient transport, @Nonnull ApiMetrics apiMetrics) throws ConfigurationException {
+        this.apiMetrics = apiMetrics;
+        this.transport = transport;
+        this.key = getKey(ctx);
+        byte[][] keys = ( byte[][] ) ctx.getConfigurationValue("apiKey");
+        if( keys == null || keys.length < 2 ) {
+            throw new ConfigurationException("No API key was provided in the context");
+        }
+        apiMetrics.register(ctx, new String(keys[0]));
+        AuthenticationService authenticationService = builder.build().create(AuthenticationService.class);
+        tokenManager = new TokenManager(authenticationService, new String(keys[0]), new String(keys[1]),
+                ContextProperties.getDouble(ctx, TokenManager.TOKEN_REFRESH_FRACTION, TokenManager.DEFAULT_TOKEN_REFRESH_FRACTION),
+                ContextProperties.getLong(ctx, TokenManager.TOKEN_WAIT_TIMEOUT, TokenManager.DEFAULT_TOKEN_WAIT_TIMEOUT));
+
+        RequestInterceptor interceptor = new RequestInterceptor() {
+            @Override public void intercept(RequestFacade request) {
+                request.addHeader("Authorization", "OAuth " + tokenManager.getCurrentToken());
+            }
+        };
+        serverGroupIndex = new ServerGroupIndexCache(ContextProperties.getLong(ctx, ServerGroupIndex.SERVER_GROUP_INDEX_TTL, ServerGroupIndex.DEFAULT_SERVER_GROUP_INDEX_TTL));
+        CloudApiService retrofitService = builder.setRequestInterceptor(interceptor).build().create(CloudApiService.class);
+        service = ( CloudApiService ) Proxy.newProxyInstance(CloudApiService.class.getClassLoader(),
+                new Class<?>[]{CloudApiService.class}, new CloudApiInvocationHandler(retrofitService, tokenManager, apiMetrics, serverGroupIndex));
+        asyncPoolSize = Math.max(1, ContextProperties.getInt(ctx, ASYNC_POOL_SIZE, DEFAULT_ASYNC_POOL_SIZE));
+        asyncQueueSize = Math.max(1, ContextProperties.getInt(ctx, ASYNC_QUEUE_SIZE, DEFAULT_ASYNC_QUEUE_SIZE));
+    }
+
+    public @Nonnull CloudApiService getService() {
+        return service;
+    }
+
+    /**
+     * Returns the asynchronous twin of {@link #getService()}. Calls run on a pool of at most
+     * {@value #ASYNC_POOL_SIZE} threads (default {@value #DEFAULT_ASYNC_POOL_SIZE}) with up to
+     * {@value #ASYNC_QUEUE_SIZE} (default {@value #DEFAULT_ASYNC_QUEUE_SIZE}) calls queued; beyond that the
+     * submitting thread runs the call itself.
+     * @return the asynchronous service for this context
+     */
+    public @Nonnull AsyncCloudApiService getAsyncService() {
+        if( asyncService == null ) {
+            synchronized( this ) {
+                if( asyncService == null ) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize, 60L, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(asyncQueueSize), new ThreadFactory() {
+                        private final AtomicInteger count = new AtomicInteger();
+
+                        @Override public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "brightbox-api-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    }, new RejectedExecutionHandler() {
+                        @Override public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+                            // the caller runs what the pool cannot take, but nothing once the holder is released
+                            if( e.isShutdown() ) {
+                                throw new RejectedExecutionException("The API service of this context has been released");
+                            }
+                            r.run();
+                        }
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    if( closed ) {
+                        executor.shutdown();
+                    }
+                    asyncExecutor = executor;
+                    asyncService = ( AsyncCloudApiService ) Proxy.newProxyInstance(AsyncCloudApiService.class.getClassLoader(),
+                            new Class<?>[]{AsyncCloudApiService.class}, new AsyncInvocationHandler(service, executor));
+                }
+            }
+        }
+        return asyncService;
+    }
+
+    private synchronized boolean retain() {
+        if( closed ) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    /**
+     * Drops one reference taken by {@link #acquire(ProviderContext, RestAdapterFactory)}. When the last one is dropped
+     * the holder is closed: it is forgotten, so that the next context asking for its key builds a new one, its token
+     * is no longer refreshed in the background, its executor and connection pool are shut down and its metrics are
+     * removed from JMX.
+     */
+    public void release() {
+        synchronized( this ) {
+            if( closed || references == 0 ) {
+                return;
+            }
+            if( --references > 0 ) {
+                return;
+            }
+            closed = true;
+            if( asyncExecutor != null ) {
+                asyncExecutor.shutdown();
+            }
+        }
+        remove(this);
+        tokenManager.close();
+        apiMetrics.unregister();
+        transport.shutdown();
+    }
+
+    /**
+     * @return true once the last reference to this holder has been released
+     */
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public @Nonnull TokenManager getTokenManager() {
+        return tokenManager;
+    }
+
+    /**
+     * Returns the mapping between the server groups and firewall policies of this context. It is listed at most
+     * once every {@value ServerGroupIndex#SERVER_GROUP_INDEX_TTL} milliseconds (default
+     * {@value ServerGroupIndex#DEFAULT_SERVER_GROUP_INDEX_TTL}) and listed again after any call that may have
+     * changed it.
+     * @return the server group index of this context
+     * @throws CloudException the server groups could not be listed
+     */
+    public @Nonnull ServerGroupIndex getServerGroupIndex() throws CloudException {
+        return serverGroupIndex.get(service);
+    }
+
+    /**
+     * @return the counters of all calls made in this context
+     */
+    public @Nonnull ApiMetrics getApiMetrics() {
+        return apiMetrics;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.ProviderContext;
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collapses concurrent identical GET requests into one. While a GET for a method and URL is in flight, later
+ * callers for the same key wait for it and receive its response instead of sending their own. With a positive
+ * {@value #COALESCE_WINDOW} a successful response also answers identical requests made within that many milliseconds
+ * of its completion; 0 (the default) shares in-flight requests only and a negative value turns coalescing off.
+ * Any other request drops every shared response once it completes, so that a GET made after a change never sees the
+ * state from before it; a change to one resource shows in others too, such as the groups listed with a server.
+ * A caller waits at most {@value #COALESCE_TIMEOUT} milliseconds (default {@value #DEFAULT_COALESCE_TIMEOUT}) for the
+ * request it joined before giving up with a {@link SocketTimeoutException}. Streaming calls are never coalesced as
+ * that would require buffering their bodies.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class CoalescingClient implements Client {
+    static public final String COALESCE_WINDOW  = "coalesceWindow";
+    static public final String COALESCE_TIMEOUT = "coalesceTimeout";
+
+    static public final long DEFAULT_COALESCE_TIMEOUT = 60000L;
+
+    static private class Call {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Response    response;
+        volatile Throwable   error;
+        volatile long        completedAt;
+
+        boolean isExpired(long window) {
+            return ( done.getCount() == 0 && System.currentTimeMillis() - completedAt > window );
+        }
+    }
+
+    private final Client                     delegate;
+    private final CoalescingMetrics          metrics;
+    private final long                       window;
+    private final long                       timeout;
+    private final ConcurrentMap<String,Call> calls = new ConcurrentHashMap<String, Call>();
+
+    public CoalescingClient(@Nonnull Client delegate, @Nonnull ProviderContext ctx, @Nonnull CoalescingMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.window = ContextProperties.getLong(ctx, COALESCE_WINDOW, 0L);
+        this.timeout = Math.max(0L, ContextProperties.getLong(ctx, COALESCE_TIMEOUT, DEFAULT_COALESCE_TIMEOUT));
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        if( window < 0 ) {
+            return delegate.execute(request);
+        }
+        if( !"GET".equalsIgnoreCase(request.getMethod()) ) {
+            try {
+                return delegate.execute(request);
+            }
+            finally {
+                // also drops requests still in flight, whose answers may predate the change
+                calls.clear();
+            }
+        }
+        if( CurrentCall.isStreaming() ) {
+            return delegate.execute(request);
+        }
+        metrics.recordRequest();
+        String key = request.getMethod() + " " + request.getUrl();
+
+        while( true ) {
+            Call call = calls.get(key);
+
+            if( call != null ) {
+                if( call.isExpired(window) ) {
+                    calls.remove(key, call);
+                    continue;
+                }
+                metrics.recordHit();
+                return await(key, call);
+            }
+            call = new Call();
+            if( calls.putIfAbsent(key, call) == null ) {
+                return lead(key, call, request);
+            }
+        }
+    }
+
+    private @Nonnull Response await(@Nonnull String key, @Nonnull Call call) throws IOException {
+        try {
+            if( !call.done.await(timeout, TimeUnit.MILLISECONDS) ) {
+                throw new SocketTimeoutException("Timed out after " + timeout + "ms waiting for a coalesced " + key);
+            }
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+        }
+        if( call.error instanceof IOException ) {
+            IOException e = new IOException(call.error.getMessage());
+            e.initCause(call.error);
+            throw e;
+        }
+        if( call.error instanceof RuntimeException ) {
+            throw ( RuntimeException ) call.error;
+        }
+        if( call.error instanceof Error ) {
+            throw ( Error ) call.error;
+        }
+        return call.response;
+    }
+
+    private @Nonnull Response lead(@Nonnull String key, @Nonnull Call call, @Nonnull Request request) throws IOException {
+        boolean keep = false;
+
+        try {
+            Response response = buffer(delegate.execute(request));
+            call.response = response;
+            keep = ( window > 0 && response.getStatus() >= 200 && response.getStatus() < 300 );
+            return response;
+        }
+        catch( IOException e ) {
+            call.error = e;
+            throw e;
+        }
+        catch( RuntimeException e ) {
+            call.error = e;
+            throw e;
+        }
+        catch( Error e ) {
+            call.error = e;
+            throw e;
+        }
+        finally {
+            call.completedAt = System.currentTimeMillis();
+            call.done.countDown();
+            if( keep ) {
+                purgeExpired();
+            }
+            else {
+                calls.remove(key, call);
+            }
+        }
+    }
+
+    private void purgeExpired() {
+        Iterator<Call> it = calls.values().iterator();
+
+        while( it.hasNext() ) {
+            if( it.next().isExpired(window) ) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Reads the body into memory so that every waiting caller can read it. Retrofit does the same for all
+     * non-streaming calls, so this does not add a copy.
+     */
+    static private @Nonnull Response buffer(@Nonnull Response response) throws IOException {
+        TypedInput body = response.getBody();
+
+        if( body == null || body instanceof TypedByteArray ) {
+            return response;
+        }
+        InputStream in = body.in();
+        try {
+            long length = body.length();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE ? ( int ) length : 4096);
+            byte[] buffer = new byte[4096];
+            int n;
+
+            while( (n = in.read(buffer)) != -1 ) {
+                out.write(buffer, 0, n);
+            }
+            body = new TypedByteArray(body.mimeType(), out.toByteArray());
+        }
+        finally {
+            in.close();
+        }
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(), body);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters maintained by {@link CoalescingClient}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class CoalescingMetrics {
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hits     = new AtomicLong();
+
+    void recordRequest() {
+        requests.incrementAndGet();
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * @return number of GET requests that were eligible for coalescing
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of those requests answered with the result of another caller's request
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the fraction of eligible requests that did not reach the server
+     */
+    public double getHitRate() {
+        long total = getRequests();
+
+        return ( total == 0 ? 0.0 : (( double ) getHits()) / total );
+    }
+
+    @Override
+    public String toString() {
+        return "requests=" + getRequests() + ", hits=" + getHits();
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.ProviderContext;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches GET responses that carry an <code>ETag</code> or <code>Last-Modified</code> header and revalidates them
+ * with <code>If-None-Match</code>/<code>If-Modified-Since</code>. A 304 answer is turned into the cached 200
+ * response, so an unchanged collection costs a round trip but no body transfer. The cached body is decoded again
+ * on every hit, so each caller gets objects of its own.
+ * <p>Entries are kept in least recently used order within a byte budget. Context properties:</p>
+ * <ul>
+ *     <li>{@value #RESPONSE_CACHE_SIZE} - total bytes of cached bodies (default {@value #DEFAULT_RESPONSE_CACHE_SIZE}, 0 disables the cache)</li>
+ *     <li>{@value #RESPONSE_CACHE_MAX_ENTRY_SIZE} - largest body that is cached (default {@value #DEFAULT_RESPONSE_CACHE_MAX_ENTRY_SIZE})</li>
+ * </ul>
+ * Bodies of streaming calls are still streamed; a copy is kept once the caller has read them to the end.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class ConditionalCacheClient implements Client {
+    static public final String RESPONSE_CACHE_SIZE           = "responseCacheSize";
+    static public final String RESPONSE_CACHE_MAX_ENTRY_SIZE = "responseCacheMaxEntrySize";
+
+    static public final long DEFAULT_RESPONSE_CACHE_SIZE           = 8L * 1024L * 1024L;
+    static public final long DEFAULT_RESPONSE_CACHE_MAX_ENTRY_SIZE = 1024L * 1024L;
+
+    static private class Entry {
+        final String       etag;
+        final String       lastModified;
+        final String       mimeType;
+        final List<Header> headers;
+        final byte[]       bytes;
+
+        Entry(@Nullable String etag, @Nullable String lastModified, @Nonnull String mimeType, @Nonnull List<Header> headers, @Nonnull byte[] bytes) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.headers = headers;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Client               delegate;
+    private final ResponseCacheMetrics metrics;
+    private final long                 maxSize;
+    private final long                 maxEntrySize;
+    private final Map<String,Entry>    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long                       size;
+
+    public ConditionalCacheClient(@Nonnull Client delegate, @Nonnull ProviderContext ctx, @Nonnull ResponseCacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.maxSize = Math.max(0L, ContextProperties.getLong(ctx, RESPONSE_CACHE_SIZE, DEFAULT_RESPONSE_CACHE_SIZE));
+        this.maxEntrySize = Math.min(maxSize, ContextProperties.getLong(ctx, RESPONSE_CACHE_MAX_ENTRY_SIZE, DEFAULT_RESPONSE_CACHE_MAX_ENTRY_SIZE));
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        if( maxSize == 0 || !"GET".equalsIgnoreCase(request.getMethod()) ) {
+            return delegate.execute(request);
+        }
+        String url = request.getUrl();
+        Entry entry = get(url);
+
+        if( entry != null ) {
+            List<Header> headers = new ArrayList<Header>(request.getHeaders());
+            if( entry.etag != null ) {
+                headers.add(new Header("If-None-Match", entry.etag));
+            }
+            if( entry.lastModified != null ) {
+                headers.add(new Header("If-Modified-Since", entry.lastModified));
+            }
+            request = new Request(request.getMethod(), url, headers, request.getBody());
+            metrics.recordConditionalRequest();
+        }
+        Response response = delegate.execute(request);
+
+        if( response.getStatus() == 304 && entry != null ) {
+            discard(response);
+            metrics.recordNotModified();
+            return new Response(url, 200, "OK", entry.headers, new TypedByteArray(entry.mimeType, entry.bytes));
+        }
+        String etag = getHeader(response, "ETag");
+        String lastModified = getHeader(response, "Last-Modified");
+        TypedInput body = response.getBody();
+
+        if( response.getStatus() != 200 || body == null || (etag == null && lastModified == null) || body.length() > maxEntrySize ) {
+            remove(url);
+            return response;
+        }
+        String mimeType = ( body.mimeType() == null ? "application/octet-stream" : body.mimeType() );
+        if( CurrentCall.isStreaming() ) {
+            body = new CopyingTypedInput(url, body, etag, lastModified, mimeType, response.getHeaders());
+            return new Response(url, response.getStatus(), response.getReason(), response.getHeaders(), body);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length() > 0 ? ( int ) body.length() : 4096);
+        InputStream in = body.in();
+        try {
+            byte[] buffer = new byte[4096];
+            int n;
+
+            while( (n = in.read(buffer)) != -1 ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        finally {
+            in.close();
+        }
+        if( out.size() > maxEntrySize ) {
+            remove(url);
+            return new Response(url, response.getStatus(), response.getReason(), response.getHeaders(), new TypedByteArray(mimeType, out.toByteArray()));
+        }
+        entry = new Entry(etag, lastModified, mimeType, response.getHeaders(), out.toByteArray());
+        put(url, entry);
+        return new Response(url, response.getStatus(), response.getReason(), response.getHeaders(), new TypedByteArray(entry.mimeType, entry.bytes));
+    }
+
+    private synchronized @Nullable Entry get(@Nonnull String url) {
+        return entries.get(url);
+    }
+
+    private synchronized void put(@Nonnull String url, @Nonnull Entry entry) {
+        Entry previous = entries.put(url, entry);
+
+        if( previous != null ) {
+            size -= previous.bytes.length;
+        }
+        size += entry.bytes.length;
+        Iterator<Entry> it = entries.values().iterator();
+        while( size > maxSize && it.hasNext() ) {
+            size -= it.next().bytes.length;
+            it.remove();
+            metrics.recordEviction();
+        }
+    }
+
+    private synchronized void remove(@Nonnull String url) {
+        Entry previous = entries.remove(url);
+
+        if( previous != null ) {
+            size -= previous.bytes.length;
+        }
+    }
+
+    static private @Nullable String getHeader(@Nonnull Response response, @Nonnull String name) {
+        for( Header header : response.getHeaders() ) {
+            if( name.equalsIgnoreCase(header.getName()) ) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    static private void discard(@Nonnull Response response) {
+        if( response.getBody() != null ) {
+            try {
+                response.getBody().in().close();
+            }
+            catch( IOException ignore ) { }
+        }
+    }
+
+    /**
+     * Streams a body to the caller and caches a copy if it was read to the end without exceeding the entry limit.
+     */
+    private class CopyingTypedInput implements TypedInput {
+        private final String       url;
+        private final TypedInput   body;
+        private final String       etag;
+        private final String       lastModified;
+        private final String       mimeType;
+        private final List<Header> headers;
+
+        CopyingTypedInput(@Nonnull String url, @Nonnull TypedInput body, @Nullable String etag, @Nullable String lastModified, @Nonnull String mimeType, @Nonnull List<Header> headers) {
+            this.url = url;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.headers = headers;
+        }
+
+        @Override public String mimeType() {
+            return mimeType;
+        }
+
+        @Override public long length() {
+            return body.length();
+        }
+
+        @Override public InputStream in() throws IOException {
+            final ByteArrayOutputStream copy = new ByteArrayOutputStream(4096);
+
+            return new FilterInputStream(body.in()) {
+                private boolean complete = false;
+                private boolean overflow = false;
+
+                @Override public int read() throws IOException {
+                    int b = super.read();
+                    if( b < 0 ) {
+                        complete = true;
+                    }
+                    else if( !overflow ) {
+                        copy.write(b);
+                        overflow = ( copy.size() > maxEntrySize );
+                    }
+                    return b;
+                }
+
+                @Override public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if( n < 0 ) {
+                        complete = true;
+                    }
+                    else if( !overflow ) {
+                        copy.write(b, off, n);
+                        overflow = ( copy.size() > maxEntrySize );
+                    }
+                    return n;
+                }
+
+                @Override public long skip(long n) throws IOException {
+                    overflow = true;
+                    return super.skip(n);
+                }
+
+                @Override public void close() throws IOException {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        if( complete && !overflow ) {
+                            put(url, new Entry(etag, lastModified, mimeType, headers, copy.toByteArray()));
+                        }
+                        else {
+                            remove(url);
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Properties;
+
+/**
+ * Typed access to the tuning values a client may set in the {@link ProviderContext} custom properties.
+ * Missing or unparseable values fall back to the supplied default.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class ContextProperties {
+    static private final Logger logger = BrightBoxCloud.getLogger(ContextProperties.class);
+
+    private ContextProperties() { }
+
+    static private @Nullable String getProperty(@Nonnull ProviderContext ctx, @Nonnull String name) {
+        Properties props = ctx.getCustomProperties();
+        String value = ( props == null ? null : props.getProperty(name) );
+
+        return ( value == null ? null : value.trim() );
+    }
+
+    static public int getInt(@Nonnull ProviderContext ctx, @Nonnull String name, int defaultValue) {
+        String value = getProperty(ctx, name);
+
+        if( value != null ) {
+            try {
+                return Integer.parseInt(value);
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Ignoring invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    static public long getLong(@Nonnull ProviderContext ctx, @Nonnull String name, long defaultValue) {
+        String value = getProperty(ctx, name);
+
+        if( value != null ) {
+            try {
+                return Long.parseLong(value);
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Ignoring invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    static public double getDouble(@Nonnull ProviderContext ctx, @Nonnull String name, double defaultValue) {
+        String value = getProperty(ctx, name);
+
+        if( value != null ) {
+            try {
+                return Double.parseDouble(value);
+            }
+            catch( NumberFormatException e ) {
+                logger.warn("Ignoring invalid value for " + name + ": " + value);
+            }
+        }
+        return defaultValue;
+    }
+
+    static public boolean getBoolean(@Nonnull ProviderContext ctx, @Nonnull String name, boolean defaultValue) {
+        String value = getProperty(ctx, name);
+
+        if( value != null ) {
+            return Boolean.parseBoolean(value);
+        }
+        return defaultValue;
+    }
+}
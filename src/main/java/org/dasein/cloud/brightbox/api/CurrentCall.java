@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import retrofit.http.Streaming;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+
+/**
+ * Remembers which {@link CloudApiService} method the current thread is executing, so that the transport, which only
+ * sees raw HTTP requests, can tell how the call will consume its response. Retrofit runs synchronous calls on the
+ * calling thread, so the value set by the service proxy is visible to every client in the chain.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+final class CurrentCall {
+    static private final ThreadLocal<Method> current = new ThreadLocal<Method>();
+
+    private CurrentCall() { }
+
+    /**
+     * @param method the method about to be executed, or null
+     * @return the previous value, to be restored with {@link #set(Method)} once the call is done
+     */
+    static @Nullable Method set(@Nullable Method method) {
+        Method previous = current.get();
+
+        if( method == null ) {
+            current.remove();
+        }
+        else {
+            current.set(method);
+        }
+        return previous;
+    }
+
+    static @Nullable Method get() {
+        return current.get();
+    }
+
+    /**
+     * @return true if the current call reads its response body as a stream
+     */
+    static boolean isStreaming() {
+        Method method = current.get();
+
+        return ( method != null && method.isAnnotationPresent(Streaming.class) );
+    }
+}
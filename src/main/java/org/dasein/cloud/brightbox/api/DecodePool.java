@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lets the model type adapters share repeated values while a response is decoded. Within one response, nested
+ * resources carrying the same id, such as the account, zone, server type and image embedded in every server of a
+ * list, are replaced by the first instance decoded. Low cardinality strings, such as states and handles, are
+ * shared across responses through a bounded global pool.
+ * <p>Objects are only shared while a pool is open on the decoding thread, see {@link #open()}. Shared objects
+ * are seen by every resource referring to them, so the decoded model must be treated as read only.</p>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+final class DecodePool {
+    /**
+     * Upper bound on the strings kept by {@link #intern(String)}; once reached, new strings are no longer pooled.
+     */
+    static private final int MAX_STRINGS = 8192;
+    /**
+     * Longer strings are unlikely to repeat and are never pooled.
+     */
+    static private final int MAX_STRING_LENGTH = 64;
+
+    static private final ThreadLocal<DecodePool>       current = new ThreadLocal<DecodePool>();
+    static private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    private final Map<Class<?>, Map<String, Object>> resources = new HashMap<Class<?>, Map<String, Object>>();
+
+    private DecodePool() { }
+
+    /**
+     * Opens a pool on the current thread unless one is already open, as when a streamed list is being decoded.
+     * @return the pool opened, to be passed to {@link #close(DecodePool)}, or null if one was already open
+     */
+    static @Nullable DecodePool open() {
+        if( current.get() != null ) {
+            return null;
+        }
+        DecodePool pool = new DecodePool();
+        current.set(pool);
+        return pool;
+    }
+
+    /**
+     * @param pool the value returned by {@link #open()}
+     */
+    static void close(@Nullable DecodePool pool) {
+        if( pool != null ) {
+            current.remove();
+        }
+    }
+
+    /**
+     * @param type the model class
+     * @param id the resource id
+     * @param value a freshly decoded resource
+     * @return the first resource of that class and id decoded since the pool was opened, or the value itself
+     */
+    static @Nullable <T> T canonical(@Nonnull Class<T> type, @Nullable String id, @Nullable T value) {
+        DecodePool pool = current.get();
+        if( pool == null || id == null || value == null ) {
+            return value;
+        }
+        Map<String, Object> byId = pool.resources.get(type);
+        if( byId == null ) {
+            byId = new HashMap<String, Object>();
+            pool.resources.put(type, byId);
+        }
+        Object existing = byId.get(id);
+        if( existing == null ) {
+            byId.put(id, value);
+            return value;
+        }
+        return type.cast(existing);
+    }
+
+    /**
+     * @param value a decoded string
+     * @return an equal string shared with earlier responses, or the value itself
+     */
+    static @Nullable String intern(@Nullable String value) {
+        if( value == null || value.length() > MAX_STRING_LENGTH ) {
+            return value;
+        }
+        String existing = strings.get(value);
+        if( existing != null ) {
+            return existing;
+        }
+        if( strings.size() >= MAX_STRINGS ) {
+            return value;
+        }
+        existing = strings.putIfAbsent(value, value);
+        return ( existing == null ? value : existing );
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import retrofit.converter.ConversionException;
+import retrofit.converter.Converter;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Type;
+
+/**
+ * Decodes each response body with a {@link DecodePool} open, so that the resources repeated throughout the
+ * response are decoded into shared instances.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class DecodePoolConverter implements Converter {
+    private final Converter delegate;
+
+    public DecodePoolConverter(@Nonnull Converter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Object fromBody(TypedInput body, Type type) throws ConversionException {
+        DecodePool pool = DecodePool.open();
+        try {
+            return delegate.fromBody(body, type);
+        }
+        finally {
+            DecodePool.close(pool);
+        }
+    }
+
+    @Override
+    public TypedOutput toBody(Object object) {
+        return delegate.toBody(object);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histogram of one Brightbox API endpoint, such as <code>GET /1.0/servers/{id}</code>.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class EndpointMetrics {
+    private final String           endpoint;
+    private final AtomicLong       calls         = new AtomicLong();
+    private final AtomicLong       clientErrors  = new AtomicLong();
+    private final AtomicLong       serverErrors  = new AtomicLong();
+    private final AtomicLong       otherErrors   = new AtomicLong();
+    private final AtomicLong       bytesIn       = new AtomicLong();
+    private final AtomicLong       bytesOut      = new AtomicLong();
+    private final LatencyHistogram latency       = new LatencyHistogram();
+
+    EndpointMetrics(@Nonnull String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @param nanos duration of the call
+     * @param status the HTTP status of a failed call, 0 if it failed without a response, or -1 if it succeeded
+     */
+    void recordCall(long nanos, int status) {
+        calls.incrementAndGet();
+        latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if( status >= 400 && status < 500 ) {
+            clientErrors.incrementAndGet();
+        }
+        else if( status >= 500 ) {
+            serverErrors.incrementAndGet();
+        }
+        else if( status >= 0 ) {
+            otherErrors.incrementAndGet();
+        }
+    }
+
+    void recordBytesIn(long bytes) {
+        bytesIn.addAndGet(bytes);
+    }
+
+    void recordBytesOut(long bytes) {
+        bytesOut.addAndGet(bytes);
+    }
+
+    public @Nonnull String getEndpoint() {
+        return endpoint;
+    }
+
+    public @Nonnull EndpointSnapshot snapshot() {
+        return new EndpointSnapshot(endpoint, calls.get(), clientErrors.get(), serverErrors.get(), otherErrors.get(),
+                bytesIn.get(), bytesOut.get(), latency.getMean(), latency.getValueAtPercentile(50), latency.getValueAtPercentile(90),
+                latency.getValueAtPercentile(99), latency.getMax());
+    }
+}
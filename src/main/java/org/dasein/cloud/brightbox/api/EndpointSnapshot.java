@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnull;
+import java.beans.ConstructorProperties;
+
+/**
+ * Point-in-time copy of the {@link EndpointMetrics} of one endpoint. Latencies are in microseconds.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class EndpointSnapshot {
+    private final String endpoint;
+    private final long   calls;
+    private final long   clientErrors;
+    private final long   serverErrors;
+    private final long   otherErrors;
+    private final long   bytesIn;
+    private final long   bytesOut;
+    private final double meanLatency;
+    private final long   medianLatency;
+    private final long   p90Latency;
+    private final long   p99Latency;
+    private final long   maxLatency;
+
+    @ConstructorProperties({"endpoint", "calls", "clientErrors", "serverErrors", "otherErrors", "bytesIn", "bytesOut",
+            "meanLatency", "medianLatency", "p90Latency", "p99Latency", "maxLatency"})
+    public EndpointSnapshot(@Nonnull String endpoint, long calls, long clientErrors, long serverErrors, long otherErrors, long bytesIn, long bytesOut,
+                            double meanLatency, long medianLatency, long p90Latency, long p99Latency, long maxLatency) {
+        this.endpoint = endpoint;
+        this.calls = calls;
+        this.clientErrors = clientErrors;
+        this.serverErrors = serverErrors;
+        this.otherErrors = otherErrors;
+        this.bytesIn = bytesIn;
+        this.bytesOut = bytesOut;
+        this.meanLatency = meanLatency;
+        this.medianLatency = medianLatency;
+        this.p90Latency = p90Latency;
+        this.p99Latency = p99Latency;
+        this.maxLatency = maxLatency;
+    }
+
+    public @Nonnull String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    /**
+     * @return calls that failed with a 4xx status
+     */
+    public long getClientErrors() {
+        return clientErrors;
+    }
+
+    /**
+     * @return calls that failed with a 5xx status
+     */
+    public long getServerErrors() {
+        return serverErrors;
+    }
+
+    /**
+     * @return calls that failed without an HTTP status, such as I/O errors
+     */
+    public long getOtherErrors() {
+        return otherErrors;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public double getMeanLatency() {
+        return meanLatency;
+    }
+
+    public long getMedianLatency() {
+        return medianLatency;
+    }
+
+    public long getP90Latency() {
+        return p90Latency;
+    }
+
+    public long getP99Latency() {
+        return p99Latency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * @return the total time spent in this endpoint, in microseconds
+     */
+    public double getTotalLatency() {
+        return meanLatency * calls;
+    }
+
+    @Override
+    public String toString() {
+        return endpoint + " calls=" + calls + ", errors=" + clientErrors + "/" + serverErrors + "/" + otherErrors
+                + ", bytesIn=" + bytesIn + ", bytesOut=" + bytesOut + ", latency(us) mean=" + ( long ) meanLatency
+                + " p50=" + medianLatency + " p90=" + p90Latency + " p99=" + p99Latency + " max=" + maxLatency;
+    }
+}
@@ -54,10 +54,16 @@ public class ErrorHandler implements retrofit.ErrorHandler {
                         return new CloudException(CloudErrorType.GENERAL, r.getStatus(), r.getReason(), error.errors[0]);
                     else return new CloudException(r.getReason());
                 case 423:
-                    return new CloudException(r.getReason());
+                    return new CloudException(CloudErrorType.GENERAL, r.getStatus(), r.getReason(), r.getReason());
+                case 429:
+                    return new CloudException(CloudErrorType.THROTTLING, r.getStatus(), r.getReason(), r.getReason());
                 case 500:
                 case 501:
-                    return new CloudException(r.getReason());
+                    return new CloudException(CloudErrorType.GENERAL, r.getStatus(), r.getReason(), r.getReason());
+                case 502:
+                case 503:
+                case 504:
+                    return new CloudException(CloudErrorType.COMMUNICATION, r.getStatus(), r.getReason(), r.getReason());
             }
         }
         return cause;
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.DateTypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Reads the ISO-8601 timestamps of the Brightbox API, such as <code>2015-02-10T12:34:56Z</code> or
+ * <code>2015-02-10T12:34:56.123+01:00</code>, by computing the epoch time from the digits directly. Nothing is
+ * shared between calls, so decoding threads do not contend for the lock of a <code>DateFormat</code>. Any other
+ * form, and writing, is left to Gson's {@link DateTypeAdapter}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class IsoDateTypeAdapter extends TypeAdapter<Date> {
+    static private final long NOT_ISO_8601 = Long.MIN_VALUE;
+
+    private final DateTypeAdapter fallback = new DateTypeAdapter();
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        fallback.write(out, value);
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if( in.peek() == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        String value = in.nextString();
+        long time = parse(value);
+
+        if( time == NOT_ISO_8601 ) {
+            return fallback.fromJsonTree(new JsonPrimitive(value));
+        }
+        return new Date(time);
+    }
+
+    /**
+     * Parses <code>yyyy-MM-ddTHH:mm:ss[.fraction](Z|+hh:mm|+hhmm|+hh)</code>.
+     * @param value the text to parse
+     * @return the milliseconds since the epoch, or {@link #NOT_ISO_8601} if the text is not in that form
+     */
+    static long parse(@Nonnull String value) {
+        int length = value.length();
+        if( length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(13) != ':' || value.charAt(16) != ':' ) {
+            return NOT_ISO_8601;
+        }
+        char t = value.charAt(10);
+        if( t != 'T' && t != 't' && t != ' ' ) {
+            return NOT_ISO_8601;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 2);
+        int day = digits(value, 8, 2);
+        int hour = digits(value, 11, 2);
+        int minute = digits(value, 14, 2);
+        int second = digits(value, 17, 2);
+        if( year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59 ) {
+            return NOT_ISO_8601;
+        }
+        int pos = 19;
+        int millis = 0;
+        if( value.charAt(pos) == '.' || value.charAt(pos) == ',' ) {
+            int start = ++pos;
+            while( pos < length && value.charAt(pos) >= '0' && value.charAt(pos) <= '9' ) {
+                if( pos - start < 3 ) {
+                    millis = millis * 10 + ( value.charAt(pos) - '0' );
+                }
+                pos++;
+            }
+            int count = pos - start;
+            if( count == 0 ) {
+                return NOT_ISO_8601;
+            }
+            for( int i = count; i < 3; i++ ) {
+                millis *= 10;
+            }
+        }
+        if( pos >= length ) {
+            return NOT_ISO_8601;
+        }
+        int offsetMinutes;
+        char zone = value.charAt(pos);
+        if( zone == 'Z' || zone == 'z' ) {
+            if( pos + 1 != length ) {
+                return NOT_ISO_8601;
+            }
+            offsetMinutes = 0;
+        }
+        else if( zone == '+' || zone == '-' ) {
+            int offsetHours = digits(value, pos + 1, 2);
+            int rest = length - pos - 3;
+            int offsetMins;
+            if( rest == 0 ) {
+                offsetMins = 0;
+            }
+            else if( rest == 2 ) {
+                offsetMins = digits(value, pos + 3, 2);
+            }
+            else if( rest == 3 && value.charAt(pos + 3) == ':' ) {
+                offsetMins = digits(value, pos + 4, 2);
+            }
+            else {
+                return NOT_ISO_8601;
+            }
+            if( offsetHours < 0 || offsetHours > 23 || offsetMins < 0 || offsetMins > 59 ) {
+                return NOT_ISO_8601;
+            }
+            offsetMinutes = ( offsetHours * 60 + offsetMins ) * ( zone == '-' ? -1 : 1 );
+        }
+        else {
+            return NOT_ISO_8601;
+        }
+        long seconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        return seconds * 1000L + millis;
+    }
+
+    /**
+     * @return the value of the decimal digits at the given position, or -1 if any of them is not a digit
+     */
+    static private int digits(@Nonnull String value, int start, int count) {
+        if( start + count > value.length() ) {
+            return -1;
+        }
+        int result = 0;
+        for( int i = start; i < start + count; i++ ) {
+            char c = value.charAt(i);
+            if( c < '0' || c > '9' ) {
+                return -1;
+            }
+            result = result * 10 + ( c - '0' );
+        }
+        return result;
+    }
+
+    static private int daysInMonth(int year, int month) {
+        if( month == 2 ) {
+            return ( ( year % 4 == 0 && year % 100 != 0 ) || year % 400 == 0 ? 29 : 28 );
+        }
+        return ( month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31 );
+    }
+
+    /**
+     * @return days since 1970-01-01 of the given date in the proleptic Gregorian calendar
+     */
+    static private long epochDay(int year, int month, int day) {
+        long y = ( month <= 2 ? year - 1 : year );
+        long era = ( y >= 0 ? y : y - 399 ) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = ( 153 * ( month > 2 ? month - 3 : month + 9 ) + 2 ) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
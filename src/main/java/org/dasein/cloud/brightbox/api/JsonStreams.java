@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import retrofit.client.Response;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Decodes the JSON array returned by one of the streaming {@link CloudApiService} list calls one element at a
+ * time, so that only the element being handled is held in memory rather than the whole decoded list. Resources
+ * repeated across elements, such as their zone or server type, are shared through a {@link DecodePool}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class JsonStreams {
+    private JsonStreams() { }
+
+    /**
+     * Receives the elements of a streamed list in the order they appear in the response.
+     * @param <T> the element type
+     */
+    public interface ElementHandler<T> {
+        void handle(@Nonnull T element) throws CloudException, InternalException;
+    }
+
+    /**
+     * Closes the body of a streamed response that will not be read, releasing its connection.
+     * @param response a response from a {@link retrofit.http.Streaming} call
+     */
+    static public void discard(@Nonnull Response response) {
+        if( response.getBody() == null ) {
+            return;
+        }
+        try {
+            response.getBody().in().close();
+        }
+        catch( IOException ignore ) { }
+    }
+
+    /**
+     * Decodes each element of the JSON array in the response body and passes it to the handler. The body
+     * is always closed, releasing the connection, when this method returns.
+     * @param response a response from a {@link retrofit.http.Streaming} call
+     * @param type the element type
+     * @param handler receives each decoded element
+     * @param <T> the element type
+     * @throws CloudException the body could not be read or decoded, or the handler failed
+     * @throws InternalException the handler failed
+     */
+    static public <T> void forEach(@Nonnull Response response, @Nonnull Class<T> type, @Nonnull ElementHandler<T> handler) throws CloudException, InternalException {
+        if( response.getBody() == null ) {
+            return;
+        }
+        TypeAdapter<T> adapter = BrightBoxCloud.getGson().getAdapter(type);
+        InputStream in = null;
+        DecodePool pool = DecodePool.open();
+        try {
+            in = response.getBody().in();
+            JsonReader reader = new JsonReader(new InputStreamReader(in, "utf-8"));
+            reader.beginArray();
+            while( reader.hasNext() ) {
+                T element = adapter.read(reader);
+                if( element != null ) {
+                    handler.handle(element);
+                }
+            }
+            reader.endArray();
+        }
+        catch( IOException e ) {
+            throw new CloudException(CloudErrorType.COMMUNICATION, response.getStatus(), response.getReason(), "Unable to read " + response.getUrl() + ": " + e.getMessage());
+        }
+        catch( JsonParseException e ) {
+            throw new CloudException(CloudErrorType.GENERAL, response.getStatus(), response.getReason(), "Unable to parse " + response.getUrl() + ": " + e.getMessage());
+        }
+        catch( IllegalStateException e ) {
+            throw new CloudException(CloudErrorType.GENERAL, response.getStatus(), response.getReason(), "Unexpected content in " + response.getUrl() + ": " + e.getMessage());
+        }
+        finally {
+            DecodePool.close(pool);
+            if( in != null ) {
+                try {
+                    in.close();
+                }
+                catch( IOException ignore ) { }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+
+import javax.annotation.Nonnull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes sent and received for each {@link CloudApiService} endpoint. The endpoint is taken from the
+ * {@link CurrentCall} of the executing thread; bodies read after the call has returned, as streamed lists are, are
+ * still counted against it.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class MeteringClient implements Client {
+    private final Client     delegate;
+    private final ApiMetrics metrics;
+
+    public MeteringClient(@Nonnull Client delegate, @Nonnull ApiMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        final EndpointMetrics endpoint = metrics.getEndpointMetrics(CurrentCall.get());
+
+        if( endpoint == null ) {
+            return delegate.execute(request);
+        }
+        if( request.getBody() != null && request.getBody().length() > 0 ) {
+            endpoint.recordBytesOut(request.getBody().length());
+        }
+        Response response = delegate.execute(request);
+        final TypedInput body = response.getBody();
+
+        if( body == null ) {
+            return response;
+        }
+        TypedInput counted = new TypedInput() {
+            @Override public String mimeType() {
+                return body.mimeType();
+            }
+
+            @Override public long length() {
+                return body.length();
+            }
+
+            @Override public InputStream in() throws IOException {
+                return new FilterInputStream(body.in()) {
+                    @Override public int read() throws IOException {
+                        int b = super.read();
+                        if( b >= 0 ) {
+                            endpoint.recordBytesIn(1);
+                        }
+                        return b;
+                    }
+
+                    @Override public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if( n > 0 ) {
+                            endpoint.recordBytesIn(n);
+                        }
+                        return n;
+                    }
+                };
+            }
+        };
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(), counted);
+    }
+}
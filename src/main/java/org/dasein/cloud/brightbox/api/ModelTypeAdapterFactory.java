@@ -0,0 +1,1151 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.dasein.cloud.brightbox.api.model.Account;
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.DatabaseServer;
+import org.dasein.cloud.brightbox.api.model.DatabaseServerType;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.FirewallRule;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.Interface;
+import org.dasein.cloud.brightbox.api.model.LoadBalancer;
+import org.dasein.cloud.brightbox.api.model.LoadBalancerHealthcheck;
+import org.dasein.cloud.brightbox.api.model.LoadBalancerListener;
+import org.dasein.cloud.brightbox.api.model.PortTranslator;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+import org.dasein.cloud.brightbox.api.model.ServerType;
+import org.dasein.cloud.brightbox.api.model.Token;
+import org.dasein.cloud.brightbox.api.model.Zone;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streaming type adapters for the API model classes returned by the Brightbox API. Each adapter reads the
+ * snake_case fields of its class straight into the setters, skipping anything it does not know, so decoding
+ * does not go through Gson's reflective field binding. Writing is left to the reflective adapter, which is
+ * only used for the few request bodies that embed these classes.
+ * <p>Field names follow the <code>LOWER_CASE_WITH_UNDERSCORES</code> naming and <code>@SerializedName</code>
+ * annotations of the model, so both paths produce the same objects. A field added to one of these classes must
+ * also be added to its adapter here, or it will be silently skipped.</p>
+ * <p>While a {@link DecodePool} is open, accounts, zones, server types, images and server groups repeated within
+ * a response are decoded into one shared instance, and states, handles and similar strings are pooled. Fields left
+ * out of the {@link Projection} set on the decoding thread are skipped without being decoded.</p>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        TypeAdapter<?> adapter;
+
+        if( raw == Server.class ) {
+            adapter = new ServerAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(Server.class)));
+        }
+        else if( raw == Image.class ) {
+            adapter = new ImageAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(Image.class)));
+        }
+        else if( raw == Account.class ) {
+            adapter = new AccountAdapter(gson.getDelegateAdapter(this, TypeToken.get(Account.class)));
+        }
+        else if( raw == ServerType.class ) {
+            adapter = new ServerTypeAdapter(gson.getDelegateAdapter(this, TypeToken.get(ServerType.class)));
+        }
+        else if( raw == Zone.class ) {
+            adapter = new ZoneAdapter(gson.getDelegateAdapter(this, TypeToken.get(Zone.class)));
+        }
+        else if( raw == Interface.class ) {
+            adapter = new InterfaceAdapter(gson.getDelegateAdapter(this, TypeToken.get(Interface.class)));
+        }
+        else if( raw == CloudIp.class ) {
+            adapter = new CloudIpAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(CloudIp.class)));
+        }
+        else if( raw == PortTranslator.class ) {
+            adapter = new PortTranslatorAdapter(gson.getDelegateAdapter(this, TypeToken.get(PortTranslator.class)));
+        }
+        else if( raw == ServerGroup.class ) {
+            adapter = new ServerGroupAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(ServerGroup.class)));
+        }
+        else if( raw == FirewallPolicy.class ) {
+            adapter = new FirewallPolicyAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(FirewallPolicy.class)));
+        }
+        else if( raw == FirewallRule.class ) {
+            adapter = new FirewallRuleAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(FirewallRule.class)));
+        }
+        else if( raw == LoadBalancer.class ) {
+            adapter = new LoadBalancerAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(LoadBalancer.class)));
+        }
+        else if( raw == LoadBalancerListener.class ) {
+            adapter = new LoadBalancerListenerAdapter(gson.getDelegateAdapter(this, TypeToken.get(LoadBalancerListener.class)));
+        }
+        else if( raw == LoadBalancerHealthcheck.class ) {
+            adapter = new LoadBalancerHealthcheckAdapter(gson.getDelegateAdapter(this, TypeToken.get(LoadBalancerHealthcheck.class)));
+        }
+        else if( raw == DatabaseServer.class ) {
+            adapter = new DatabaseServerAdapter(gson, gson.getDelegateAdapter(this, TypeToken.get(DatabaseServer.class)));
+        }
+        else if( raw == DatabaseServerType.class ) {
+            adapter = new DatabaseServerTypeAdapter(gson.getDelegateAdapter(this, TypeToken.get(DatabaseServerType.class)));
+        }
+        else if( raw == Token.class ) {
+            adapter = new TokenAdapter(gson.getDelegateAdapter(this, TypeToken.get(Token.class)));
+        }
+        else {
+            return null;
+        }
+        return ( TypeAdapter<T> ) adapter;
+    }
+
+    /**
+     * Reads one JSON object field by field; writes through the reflective adapter.
+     * @param <T> the model class
+     */
+    static abstract class ModelAdapter<T> extends TypeAdapter<T> {
+        private final Class<T>       type;
+        private final TypeAdapter<T> delegate;
+
+        ModelAdapter(@Nonnull Class<T> type, @Nonnull TypeAdapter<T> delegate) {
+            this.type = type;
+            this.delegate = delegate;
+        }
+
+        abstract @Nonnull T newInstance();
+
+        /**
+         * @return the instance to hand out for a fully read one; resources repeated within a response override this
+         * to share one instance through the {@link DecodePool}
+         */
+        @Nonnull T canonical(@Nonnull T instance) {
+            return instance;
+        }
+
+        /**
+         * Reads the value of the named field into the instance.
+         * @return false if the field is unknown and its value has not been consumed
+         */
+        abstract boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull T instance) throws IOException;
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            delegate.write(out, value);
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            T instance = readInstance(in);
+
+            return ( instance == null ? null : canonical(instance) );
+        }
+
+        /**
+         * Reads one object without sharing it through the {@link DecodePool}; used for partial references whose id
+         * may also appear as a full resource in the same response, which the partial one must not replace.
+         * @return a new instance, or null for a JSON null
+         */
+        @Nullable T readInstance(@Nonnull JsonReader in) throws IOException {
+            if( in.peek() == JsonToken.NULL ) {
+                in.nextNull();
+                return null;
+            }
+            T instance = newInstance();
+            Set<String> fields = Projection.getFields(type);
+            in.beginObject();
+            while( in.hasNext() ) {
+                String name = in.nextName();
+                if( ( fields != null && !fields.contains(name) ) || !readField(in, name, instance) ) {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return instance;
+        }
+    }
+
+    // the value readers accept the same lenient forms as Gson's built in adapters
+
+    static @Nullable String nextString(@Nonnull JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if( token == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        if( token == JsonToken.BOOLEAN ) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads a string of the kind repeated across many resources, such as a state or handle, through the
+     * {@link DecodePool} string pool.
+     */
+    static @Nullable String nextToken(@Nonnull JsonReader in) throws IOException {
+        return DecodePool.intern(nextString(in));
+    }
+
+    static boolean nextBoolean(@Nonnull JsonReader in) throws IOException {
+        Boolean value = nextBooleanOrNull(in);
+        return ( value != null && value );
+    }
+
+    static @Nullable Boolean nextBooleanOrNull(@Nonnull JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if( token == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        if( token == JsonToken.STRING ) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    static int nextInt(@Nonnull JsonReader in) throws IOException {
+        Integer value = nextIntOrNull(in);
+        return ( value == null ? 0 : value );
+    }
+
+    static @Nullable Integer nextIntOrNull(@Nonnull JsonReader in) throws IOException {
+        if( in.peek() == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    static @Nullable Long nextLongOrNull(@Nonnull JsonReader in) throws IOException {
+        if( in.peek() == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextLong();
+    }
+
+    static @Nullable <E> List<E> nextList(@Nonnull JsonReader in, @Nonnull TypeAdapter<E> adapter) throws IOException {
+        if( in.peek() == JsonToken.NULL ) {
+            in.nextNull();
+            return null;
+        }
+        List<E> list = new ArrayList<E>();
+        in.beginArray();
+        while( in.hasNext() ) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    static private class ServerAdapter extends ModelAdapter<Server> {
+        private final TypeAdapter<Date>        dates;
+        private final TypeAdapter<Account>     accounts;
+        private final TypeAdapter<Image>       images;
+        private final TypeAdapter<ServerType>  serverTypes;
+        private final TypeAdapter<Zone>        zones;
+        private final TypeAdapter<CloudIp>     cloudIps;
+        private final TypeAdapter<Interface>   interfaces;
+        private final TypeAdapter<ServerGroup> serverGroups;
+
+        ServerAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<Server> delegate) {
+            super(Server.class, delegate);
+            dates = gson.getAdapter(Date.class);
+            accounts = gson.getAdapter(Account.class);
+            images = gson.getAdapter(Image.class);
+            serverTypes = gson.getAdapter(ServerType.class);
+            zones = gson.getAdapter(Zone.class);
+            cloudIps = gson.getAdapter(CloudIp.class);
+            interfaces = gson.getAdapter(Interface.class);
+            serverGroups = gson.getAdapter(ServerGroup.class);
+        }
+
+        @Override @Nonnull Server newInstance() {
+            return new Server();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Server server) throws IOException {
+            if( "id".equals(name) ) {
+                server.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                server.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                server.setName(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                server.setStatus(nextToken(in));
+            }
+            else if( "hostname".equals(name) ) {
+                server.setHostname(nextString(in));
+            }
+            else if( "fqdn".equals(name) ) {
+                server.setFqdn(nextString(in));
+            }
+            else if( "created_at".equals(name) ) {
+                server.setCreatedAt(dates.read(in));
+            }
+            else if( "deleted_at".equals(name) ) {
+                server.setDeletedAt(dates.read(in));
+            }
+            else if( "started_at".equals(name) ) {
+                server.setStartedAt(dates.read(in));
+            }
+            else if( "user_data".equals(name) ) {
+                server.setUserData(nextString(in));
+            }
+            else if( "compatibility_mode".equals(name) ) {
+                server.setCompatibilityMode(nextBoolean(in));
+            }
+            else if( "console_url".equals(name) ) {
+                server.setConsoleUrl(nextString(in));
+            }
+            else if( "console_token".equals(name) ) {
+                server.setConsoleToken(nextString(in));
+            }
+            else if( "console_token_expires".equals(name) ) {
+                server.setConsoleTokenExpires(nextString(in));
+            }
+            else if( "locked".equals(name) ) {
+                server.setLocked(nextBoolean(in));
+            }
+            else if( "account".equals(name) ) {
+                server.setAccount(accounts.read(in));
+            }
+            else if( "image".equals(name) ) {
+                server.setImage(images.read(in));
+            }
+            else if( "server_type".equals(name) ) {
+                server.setServerType(serverTypes.read(in));
+            }
+            else if( "zone".equals(name) ) {
+                server.setZone(zones.read(in));
+            }
+            else if( "snapshots".equals(name) ) {
+                server.setSnapshots(nextList(in, images));
+            }
+            else if( "cloud_ips".equals(name) ) {
+                server.setCloudIps(nextList(in, cloudIps));
+            }
+            else if( "interfaces".equals(name) ) {
+                server.setInterfaces(nextList(in, interfaces));
+            }
+            else if( "server_groups".equals(name) ) {
+                server.setServerGroups(nextList(in, serverGroups));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class ImageAdapter extends ModelAdapter<Image> {
+        private final TypeAdapter<Date> dates;
+
+        ImageAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<Image> delegate) {
+            super(Image.class, delegate);
+            dates = gson.getAdapter(Date.class);
+        }
+
+        @Override @Nonnull Image newInstance() {
+            return new Image();
+        }
+
+        @Override @Nonnull Image canonical(@Nonnull Image image) {
+            return DecodePool.canonical(Image.class, image.getId(), image);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Image image) throws IOException {
+            if( "id".equals(name) ) {
+                image.setId(nextString(in));
+            }
+            else if( "resource_type".equals(name) ) {
+                image.setResourceType(nextToken(in));
+            }
+            else if( "url".equals(name) ) {
+                image.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                image.setName(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                image.setStatus(nextToken(in));
+            }
+            else if( "locked".equals(name) ) {
+                image.setLocked(nextBoolean(in));
+            }
+            else if( "username".equals(name) ) {
+                image.setUsername(nextToken(in));
+            }
+            else if( "description".equals(name) ) {
+                image.setDescription(nextString(in));
+            }
+            else if( "source".equals(name) ) {
+                image.setSource(nextToken(in));
+            }
+            else if( "arch".equals(name) ) {
+                image.setArch(nextToken(in));
+            }
+            else if( "created_at".equals(name) ) {
+                image.setCreatedAt(dates.read(in));
+            }
+            else if( "official".equals(name) ) {
+                image.setOfficial(nextBoolean(in));
+            }
+            else if( "public".equals(name) ) {
+                image.setPublic(nextBoolean(in));
+            }
+            else if( "compatibility_mode".equals(name) ) {
+                image.setCompatibilityMode(nextBoolean(in));
+            }
+            else if( "source_type".equals(name) ) {
+                image.setSourceType(nextToken(in));
+            }
+            else if( "disk_size".equals(name) ) {
+                image.setDiskSize(nextLongOrNull(in));
+            }
+            else if( "virtual_size".equals(name) ) {
+                image.setVirtualSize(nextLongOrNull(in));
+            }
+            else if( "min_ram".equals(name) ) {
+                image.setMinRam(nextLongOrNull(in));
+            }
+            else if( "owner".equals(name) ) {
+                image.setOwner(nextToken(in));
+            }
+            else if( "licence_name".equals(name) ) {
+                image.setLicenceName(nextToken(in));
+            }
+            else if( "ancestor".equals(name) ) {
+                image.setAncestor(readInstance(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class AccountAdapter extends ModelAdapter<Account> {
+        AccountAdapter(@Nonnull TypeAdapter<Account> delegate) {
+            super(Account.class, delegate);
+        }
+
+        @Override @Nonnull Account newInstance() {
+            return new Account();
+        }
+
+        @Override @Nonnull Account canonical(@Nonnull Account account) {
+            return DecodePool.canonical(Account.class, account.getId(), account);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Account account) throws IOException {
+            if( "id".equals(name) ) {
+                account.setId(nextString(in));
+            }
+            else if( "resource_type".equals(name) ) {
+                account.setResourceType(nextToken(in));
+            }
+            else if( "url".equals(name) ) {
+                account.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                account.setName(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                account.setStatus(nextToken(in));
+            }
+            else if( "address_1".equals(name) ) {
+                account.setAddress1(nextString(in));
+            }
+            else if( "address_2".equals(name) ) {
+                account.setAddress2(nextString(in));
+            }
+            else if( "city".equals(name) ) {
+                account.setCity(nextToken(in));
+            }
+            else if( "county".equals(name) ) {
+                account.setCounty(nextToken(in));
+            }
+            else if( "postcode".equals(name) ) {
+                account.setPostcode(nextString(in));
+            }
+            else if( "country_code".equals(name) ) {
+                account.setCountryCode(nextToken(in));
+            }
+            else if( "country_name".equals(name) ) {
+                account.setCountryName(nextToken(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class ServerTypeAdapter extends ModelAdapter<ServerType> {
+        ServerTypeAdapter(@Nonnull TypeAdapter<ServerType> delegate) {
+            super(ServerType.class, delegate);
+        }
+
+        @Override @Nonnull ServerType newInstance() {
+            return new ServerType();
+        }
+
+        @Override @Nonnull ServerType canonical(@Nonnull ServerType type) {
+            return DecodePool.canonical(ServerType.class, type.getId(), type);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull ServerType type) throws IOException {
+            if( "id".equals(name) ) {
+                type.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                type.setUrl(nextString(in));
+            }
+            else if( "handle".equals(name) ) {
+                type.setHandle(nextToken(in));
+            }
+            else if( "name".equals(name) ) {
+                type.setName(nextToken(in));
+            }
+            else if( "status".equals(name) ) {
+                type.setStatus(nextToken(in));
+            }
+            else if( "cores".equals(name) ) {
+                type.setCores(nextInt(in));
+            }
+            else if( "ram".equals(name) ) {
+                type.setRam(nextInt(in));
+            }
+            else if( "disk_size".equals(name) ) {
+                type.setDiskSize(nextInt(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class ZoneAdapter extends ModelAdapter<Zone> {
+        ZoneAdapter(@Nonnull TypeAdapter<Zone> delegate) {
+            super(Zone.class, delegate);
+        }
+
+        @Override @Nonnull Zone newInstance() {
+            return new Zone();
+        }
+
+        @Override @Nonnull Zone canonical(@Nonnull Zone zone) {
+            return DecodePool.canonical(Zone.class, zone.getId(), zone);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Zone zone) throws IOException {
+            if( "id".equals(name) ) {
+                zone.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                zone.setUrl(nextString(in));
+            }
+            else if( "handle".equals(name) ) {
+                zone.setHandle(nextToken(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class InterfaceAdapter extends ModelAdapter<Interface> {
+        InterfaceAdapter(@Nonnull TypeAdapter<Interface> delegate) {
+            super(Interface.class, delegate);
+        }
+
+        @Override @Nonnull Interface newInstance() {
+            return new Interface();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Interface iface) throws IOException {
+            if( "id".equals(name) ) {
+                iface.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                iface.setUrl(nextString(in));
+            }
+            else if( "mac_address".equals(name) ) {
+                iface.setMacAddress(nextString(in));
+            }
+            else if( "ipv4_address".equals(name) ) {
+                iface.setIpv4Address(nextString(in));
+            }
+            else if( "ipv6_address".equals(name) ) {
+                iface.setIpv6Address(nextString(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class CloudIpAdapter extends ModelAdapter<CloudIp> {
+        private final TypeAdapter<PortTranslator> portTranslators;
+        private final TypeAdapter<Account>        accounts;
+        private final TypeAdapter<Interface>      interfaces;
+        private final TypeAdapter<Server>         servers;
+        private final TypeAdapter<LoadBalancer>   loadBalancers;
+        private final TypeAdapter<DatabaseServer> databaseServers;
+
+        CloudIpAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<CloudIp> delegate) {
+            super(CloudIp.class, delegate);
+            portTranslators = gson.getAdapter(PortTranslator.class);
+            accounts = gson.getAdapter(Account.class);
+            interfaces = gson.getAdapter(Interface.class);
+            servers = gson.getAdapter(Server.class);
+            loadBalancers = gson.getAdapter(LoadBalancer.class);
+            databaseServers = gson.getAdapter(DatabaseServer.class);
+        }
+
+        @Override @Nonnull CloudIp newInstance() {
+            return new CloudIp();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull CloudIp ip) throws IOException {
+            if( "id".equals(name) ) {
+                ip.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                ip.setUrl(nextString(in));
+            }
+            else if( "public_ip".equals(name) ) {
+                ip.setPublicIp(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                ip.setStatus(nextToken(in));
+            }
+            else if( "reverse_dns".equals(name) ) {
+                ip.setReverseDns(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                ip.setName(nextString(in));
+            }
+            else if( "port_translators".equals(name) ) {
+                ip.setPortTranslators(nextList(in, portTranslators));
+            }
+            else if( "account".equals(name) ) {
+                ip.setAccount(accounts.read(in));
+            }
+            else if( "interface".equals(name) ) {
+                ip.setInterface(interfaces.read(in));
+            }
+            else if( "server".equals(name) ) {
+                ip.setServer(servers.read(in));
+            }
+            else if( "load_balancer".equals(name) ) {
+                ip.setLoadBalancer(loadBalancers.read(in));
+            }
+            else if( "database_server".equals(name) ) {
+                ip.setDatabaseServer(databaseServers.read(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class PortTranslatorAdapter extends ModelAdapter<PortTranslator> {
+        PortTranslatorAdapter(@Nonnull TypeAdapter<PortTranslator> delegate) {
+            super(PortTranslator.class, delegate);
+        }
+
+        @Override @Nonnull PortTranslator newInstance() {
+            return new PortTranslator(0, 0, null);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull PortTranslator translator) throws IOException {
+            if( "incoming".equals(name) ) {
+                translator.setIncoming(nextInt(in));
+            }
+            else if( "outgoing".equals(name) ) {
+                translator.setOutgoing(nextInt(in));
+            }
+            else if( "protocol".equals(name) ) {
+                translator.setProtocol(nextToken(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class ServerGroupAdapter extends ModelAdapter<ServerGroup> {
+        private final TypeAdapter<FirewallPolicy> firewallPolicies;
+        private final TypeAdapter<Server>         servers;
+
+        ServerGroupAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<ServerGroup> delegate) {
+            super(ServerGroup.class, delegate);
+            firewallPolicies = gson.getAdapter(FirewallPolicy.class);
+            servers = gson.getAdapter(Server.class);
+        }
+
+        @Override @Nonnull ServerGroup newInstance() {
+            return new ServerGroup();
+        }
+
+        @Override @Nonnull ServerGroup canonical(@Nonnull ServerGroup group) {
+            return DecodePool.canonical(ServerGroup.class, group.getId(), group);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull ServerGroup group) throws IOException {
+            if( "id".equals(name) ) {
+                group.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                group.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                group.setName(nextString(in));
+            }
+            else if( "created_at".equals(name) ) {
+                group.setCreatedAt(nextString(in));
+            }
+            else if( "description".equals(name) ) {
+                group.setDescription(nextString(in));
+            }
+            else if( "default".equals(name) ) {
+                group.setDefault(nextBoolean(in));
+            }
+            else if( "firewall_policy".equals(name) ) {
+                group.setFirewallPolicy(firewallPolicies.read(in));
+            }
+            else if( "servers".equals(name) ) {
+                group.setServers(nextList(in, servers));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class FirewallPolicyAdapter extends ModelAdapter<FirewallPolicy> {
+        private final TypeAdapter<Date>         dates;
+        private final TypeAdapter<ServerGroup>  serverGroups;
+        private final TypeAdapter<FirewallRule> rules;
+
+        FirewallPolicyAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<FirewallPolicy> delegate) {
+            super(FirewallPolicy.class, delegate);
+            dates = gson.getAdapter(Date.class);
+            serverGroups = gson.getAdapter(ServerGroup.class);
+            rules = gson.getAdapter(FirewallRule.class);
+        }
+
+        @Override @Nonnull FirewallPolicy newInstance() {
+            return new FirewallPolicy();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull FirewallPolicy policy) throws IOException {
+            if( "id".equals(name) ) {
+                policy.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                policy.setUrl(nextString(in));
+            }
+            else if( "default".equals(name) ) {
+                policy.setDefault(nextBooleanOrNull(in));
+            }
+            else if( "name".equals(name) ) {
+                policy.setName(nextString(in));
+            }
+            else if( "description".equals(name) ) {
+                policy.setDescription(nextString(in));
+            }
+            else if( "created_at".equals(name) ) {
+                policy.setCreatedAt(dates.read(in));
+            }
+            else if( "server_group".equals(name) ) {
+                policy.setServerGroup(serverGroups.read(in));
+            }
+            else if( "rules".equals(name) ) {
+                policy.setRules(nextList(in, rules));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class FirewallRuleAdapter extends ModelAdapter<FirewallRule> {
+        private final TypeAdapter<Date>           dates;
+        private final TypeAdapter<FirewallPolicy> firewallPolicies;
+
+        FirewallRuleAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<FirewallRule> delegate) {
+            super(FirewallRule.class, delegate);
+            dates = gson.getAdapter(Date.class);
+            firewallPolicies = gson.getAdapter(FirewallPolicy.class);
+        }
+
+        @Override @Nonnull FirewallRule newInstance() {
+            return new FirewallRule();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull FirewallRule rule) throws IOException {
+            if( "id".equals(name) ) {
+                rule.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                rule.setUrl(nextString(in));
+            }
+            else if( "source".equals(name) ) {
+                rule.setSource(nextToken(in));
+            }
+            else if( "source_port".equals(name) ) {
+                rule.setSourcePort(nextToken(in));
+            }
+            else if( "destination".equals(name) ) {
+                rule.setDestination(nextToken(in));
+            }
+            else if( "destination_port".equals(name) ) {
+                rule.setDestinationPort(nextToken(in));
+            }
+            else if( "protocol".equals(name) ) {
+                rule.setProtocol(nextToken(in));
+            }
+            else if( "icmp_type_name".equals(name) ) {
+                rule.setIcmpTypeName(nextToken(in));
+            }
+            else if( "description".equals(name) ) {
+                rule.setDescription(nextString(in));
+            }
+            else if( "created_at".equals(name) ) {
+                rule.setCreatedAt(dates.read(in));
+            }
+            else if( "firewall_policy".equals(name) ) {
+                rule.setFirewallPolicy(firewallPolicies.read(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class LoadBalancerAdapter extends ModelAdapter<LoadBalancer> {
+        private final TypeAdapter<LoadBalancerListener>    listeners;
+        private final TypeAdapter<LoadBalancerHealthcheck> healthchecks;
+        private final TypeAdapter<Account>                 accounts;
+        private final TypeAdapter<CloudIp>                 cloudIps;
+        private final TypeAdapter<Server>                  servers;
+
+        LoadBalancerAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<LoadBalancer> delegate) {
+            super(LoadBalancer.class, delegate);
+            listeners = gson.getAdapter(LoadBalancerListener.class);
+            healthchecks = gson.getAdapter(LoadBalancerHealthcheck.class);
+            accounts = gson.getAdapter(Account.class);
+            cloudIps = gson.getAdapter(CloudIp.class);
+            servers = gson.getAdapter(Server.class);
+        }
+
+        @Override @Nonnull LoadBalancer newInstance() {
+            return new LoadBalancer();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull LoadBalancer lb) throws IOException {
+            if( "id".equals(name) ) {
+                lb.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                lb.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                lb.setName(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                lb.setStatus(nextToken(in));
+            }
+            else if( "listeners".equals(name) ) {
+                lb.setListeners(nextList(in, listeners));
+            }
+            else if( "policy".equals(name) ) {
+                lb.setPolicy(nextToken(in));
+            }
+            else if( "healthcheck".equals(name) ) {
+                lb.setHealthcheck(healthchecks.read(in));
+            }
+            else if( "buffer_size".equals(name) ) {
+                lb.setBufferSize(nextInt(in));
+            }
+            else if( "created_at".equals(name) ) {
+                lb.setCreatedAt(nextString(in));
+            }
+            else if( "deleted_at".equals(name) ) {
+                lb.setDeletedAt(nextString(in));
+            }
+            else if( "locked".equals(name) ) {
+                lb.setLocked(nextBoolean(in));
+            }
+            else if( "certificate".equals(name) ) {
+                lb.setCertificate(nextString(in));
+            }
+            else if( "account".equals(name) ) {
+                lb.setAccount(accounts.read(in));
+            }
+            else if( "cloud_ips".equals(name) ) {
+                lb.setCloudIps(nextList(in, cloudIps));
+            }
+            else if( "nodes".equals(name) ) {
+                lb.setNodes(nextList(in, servers));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class LoadBalancerListenerAdapter extends ModelAdapter<LoadBalancerListener> {
+        LoadBalancerListenerAdapter(@Nonnull TypeAdapter<LoadBalancerListener> delegate) {
+            super(LoadBalancerListener.class, delegate);
+        }
+
+        @Override @Nonnull LoadBalancerListener newInstance() {
+            return new LoadBalancerListener(null, null, null, null);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull LoadBalancerListener listener) throws IOException {
+            if( "in".equals(name) ) {
+                listener.setIn(nextIntOrNull(in));
+            }
+            else if( "out".equals(name) ) {
+                listener.setOut(nextIntOrNull(in));
+            }
+            else if( "protocol".equals(name) ) {
+                listener.setProtocol(nextToken(in));
+            }
+            else if( "timeout".equals(name) ) {
+                listener.setTimeout(nextIntOrNull(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class LoadBalancerHealthcheckAdapter extends ModelAdapter<LoadBalancerHealthcheck> {
+        LoadBalancerHealthcheckAdapter(@Nonnull TypeAdapter<LoadBalancerHealthcheck> delegate) {
+            super(LoadBalancerHealthcheck.class, delegate);
+        }
+
+        @Override @Nonnull LoadBalancerHealthcheck newInstance() {
+            return new LoadBalancerHealthcheck();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull LoadBalancerHealthcheck healthcheck) throws IOException {
+            if( "type".equals(name) ) {
+                healthcheck.setType(nextToken(in));
+            }
+            else if( "request".equals(name) ) {
+                healthcheck.setRequest(nextString(in));
+            }
+            else if( "port".equals(name) ) {
+                healthcheck.setPort(nextIntOrNull(in));
+            }
+            else if( "interval".equals(name) ) {
+                healthcheck.setInterval(nextIntOrNull(in));
+            }
+            else if( "timeout".equals(name) ) {
+                healthcheck.setTimeout(nextIntOrNull(in));
+            }
+            else if( "threshold_up".equals(name) ) {
+                healthcheck.setThresholdUp(nextIntOrNull(in));
+            }
+            else if( "threshold_down".equals(name) ) {
+                healthcheck.setThresholdDown(nextIntOrNull(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class DatabaseServerAdapter extends ModelAdapter<DatabaseServer> {
+        private final TypeAdapter<Date>               dates;
+        private final TypeAdapter<String>             strings;
+        private final TypeAdapter<DatabaseServerType> databaseServerTypes;
+        private final TypeAdapter<CloudIp>            cloudIps;
+        private final TypeAdapter<Zone>               zones;
+
+        DatabaseServerAdapter(@Nonnull Gson gson, @Nonnull TypeAdapter<DatabaseServer> delegate) {
+            super(DatabaseServer.class, delegate);
+            dates = gson.getAdapter(Date.class);
+            strings = gson.getAdapter(String.class);
+            databaseServerTypes = gson.getAdapter(DatabaseServerType.class);
+            cloudIps = gson.getAdapter(CloudIp.class);
+            zones = gson.getAdapter(Zone.class);
+        }
+
+        @Override @Nonnull DatabaseServer newInstance() {
+            return new DatabaseServer();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull DatabaseServer server) throws IOException {
+            if( "id".equals(name) ) {
+                server.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                server.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                server.setName(nextString(in));
+            }
+            else if( "description".equals(name) ) {
+                server.setDescription(nextString(in));
+            }
+            else if( "status".equals(name) ) {
+                server.setStatus(nextToken(in));
+            }
+            else if( "database_engine".equals(name) ) {
+                server.setDatabaseEngine(nextToken(in));
+            }
+            else if( "database_version".equals(name) ) {
+                server.setDatabaseVersion(nextToken(in));
+            }
+            else if( "admin_username".equals(name) ) {
+                server.setAdminUsername(nextString(in));
+            }
+            else if( "admin_password".equals(name) ) {
+                server.setAdminPassword(nextString(in));
+            }
+            else if( "created_at".equals(name) ) {
+                server.setCreatedAt(dates.read(in));
+            }
+            else if( "updated_at".equals(name) ) {
+                server.setUpdatedAt(dates.read(in));
+            }
+            else if( "deleted_at".equals(name) ) {
+                server.setDeletedAt(dates.read(in));
+            }
+            else if( "allow_access".equals(name) ) {
+                server.setAllowAccess(nextList(in, strings));
+            }
+            else if( "locked".equals(name) ) {
+                server.setLocked(nextBoolean(in));
+            }
+            else if( "database_server_type".equals(name) ) {
+                server.setDatabaseServerType(databaseServerTypes.read(in));
+            }
+            else if( "cloud_ips".equals(name) ) {
+                server.setCloudIps(nextList(in, cloudIps));
+            }
+            else if( "zone".equals(name) ) {
+                server.setZone(zones.read(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class DatabaseServerTypeAdapter extends ModelAdapter<DatabaseServerType> {
+        DatabaseServerTypeAdapter(@Nonnull TypeAdapter<DatabaseServerType> delegate) {
+            super(DatabaseServerType.class, delegate);
+        }
+
+        @Override @Nonnull DatabaseServerType newInstance() {
+            return new DatabaseServerType();
+        }
+
+        @Override @Nonnull DatabaseServerType canonical(@Nonnull DatabaseServerType type) {
+            return DecodePool.canonical(DatabaseServerType.class, type.getId(), type);
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull DatabaseServerType type) throws IOException {
+            if( "id".equals(name) ) {
+                type.setId(nextString(in));
+            }
+            else if( "url".equals(name) ) {
+                type.setUrl(nextString(in));
+            }
+            else if( "name".equals(name) ) {
+                type.setName(nextString(in));
+            }
+            else if( "description".equals(name) ) {
+                type.setDescription(nextString(in));
+            }
+            else if( "ram".equals(name) ) {
+                type.setRam(nextIntOrNull(in));
+            }
+            else if( "disk_size".equals(name) ) {
+                type.setDiskSize(nextIntOrNull(in));
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    static private class TokenAdapter extends ModelAdapter<Token> {
+        TokenAdapter(@Nonnull TypeAdapter<Token> delegate) {
+            super(Token.class, delegate);
+        }
+
+        @Override @Nonnull Token newInstance() {
+            return new Token();
+        }
+
+        @Override boolean readField(@Nonnull JsonReader in, @Nonnull String name, @Nonnull Token token) throws IOException {
+            if( "access_token".equals(name) ) {
+                token.setAccessToken(nextString(in));
+            }
+            else if( "expires_in".equals(name) ) {
+                Long expiresIn = nextLongOrNull(in);
+                token.setExpiresIn(expiresIn == null ? 0 : expiresIn);
+            }
+            else {
+                return false;
+            }
+            return true;
+        }
+    }
+}
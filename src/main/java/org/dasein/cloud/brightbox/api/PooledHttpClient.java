@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.dasein.cloud.ProviderContext;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrofit transport backed by a keep-alive connection pool. Response bodies are streamed from the pooled connection,
+ * which is returned to the pool once Retrofit has read and closed them. Each {@link CloudApiServiceHolder} owns one
+ * client, and so one pool tuned by the context it was built for, and shuts it down when it is released.
+ * <p>The pool is tuned through the following {@link ProviderContext} custom properties:</p>
+ * <ul>
+ *     <li>{@value #MAX_CONNECTIONS} - maximum number of pooled connections (default {@value #DEFAULT_MAX_CONNECTIONS})</li>
+ *     <li>{@value #MAX_CONNECTIONS_PER_ROUTE} - maximum number of pooled connections to the endpoint (default {@value #DEFAULT_MAX_CONNECTIONS_PER_ROUTE})</li>
+ *     <li>{@value #CONNECTION_IDLE_TIMEOUT} - milliseconds an idle connection is kept in the pool (default {@value #DEFAULT_CONNECTION_IDLE_TIMEOUT})</li>
+ *     <li>{@value #CONNECT_TIMEOUT} - connect timeout in milliseconds (default {@value #DEFAULT_CONNECT_TIMEOUT})</li>
+ *     <li>{@value #SOCKET_TIMEOUT} - socket read timeout in milliseconds (default {@value #DEFAULT_SOCKET_TIMEOUT})</li>
+ * </ul>
+ * Idle and expired connections of all live clients are closed by one daemon thread, which stops once every client
+ * has been shut down.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class PooledHttpClient implements Client {
+    static public final String MAX_CONNECTIONS           = "maxConnections";
+    static public final String MAX_CONNECTIONS_PER_ROUTE = "maxConnectionsPerRoute";
+    static public final String CONNECTION_IDLE_TIMEOUT   = "connectionIdleTimeout";
+    static public final String CONNECT_TIMEOUT           = "connectTimeout";
+    static public final String SOCKET_TIMEOUT            = "socketTimeout";
+
+    static public final int DEFAULT_MAX_CONNECTIONS           = 200;
+    static public final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+    static public final int DEFAULT_CONNECTION_IDLE_TIMEOUT   = 30000;
+    static public final int DEFAULT_CONNECT_TIMEOUT           = 10000;
+    static public final int DEFAULT_SOCKET_TIMEOUT            = 60000;
+
+    static private final long EVICTION_INTERVAL = 5000L;
+
+    static private final Set<PooledHttpClient> clients = new HashSet<PooledHttpClient>();
+    static private ScheduledExecutorService    evictor;
+
+    static private synchronized void register(@Nonnull PooledHttpClient client) {
+        clients.add(client);
+        if( evictor == null ) {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "brightbox-idle-connection-evictor");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override public void run() {
+                    for( PooledHttpClient client : getClients() ) {
+                        client.evict();
+                    }
+                }
+            }, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static private synchronized void unregister(@Nonnull PooledHttpClient client) {
+        if( clients.remove(client) && clients.isEmpty() && evictor != null ) {
+            evictor.shutdown();
+            evictor = null;
+        }
+    }
+
+    static private synchronized @Nonnull List<PooledHttpClient> getClients() {
+        return new ArrayList<PooledHttpClient>(clients);
+    }
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final HttpClient                     client;
+    private final long                           idleTimeout;
+
+    public PooledHttpClient(@Nonnull ProviderContext ctx) {
+        int maxPerRoute = ContextProperties.getInt(ctx, MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+
+        connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+        connectionManager.setMaxTotal(Math.max(1, ContextProperties.getInt(ctx, MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS)));
+        connectionManager.setDefaultMaxPerRoute(Math.max(1, maxPerRoute));
+        idleTimeout = ContextProperties.getInt(ctx, CONNECTION_IDLE_TIMEOUT, DEFAULT_CONNECTION_IDLE_TIMEOUT);
+
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params, ContextProperties.getInt(ctx, CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT));
+        HttpConnectionParams.setSoTimeout(params, ContextProperties.getInt(ctx, SOCKET_TIMEOUT, DEFAULT_SOCKET_TIMEOUT));
+        client = new DefaultHttpClient(connectionManager, params);
+        register(this);
+    }
+
+    private void evict() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes every pooled connection. The client must not be used afterwards.
+     */
+    public void shutdown() {
+        unregister(this);
+        connectionManager.shutdown();
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        HttpResponse response = client.execute(toHttpRequest(request));
+
+        List<Header> headers = new ArrayList<Header>();
+        for( org.apache.http.Header header : response.getAllHeaders() ) {
+            headers.add(new Header(header.getName(), header.getValue()));
+        }
+        HttpEntity entity = response.getEntity();
+        TypedInput body = ( entity == null ? null : new EntityTypedInput(entity) );
+        return new Response(request.getUrl(), response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(), headers, body);
+    }
+
+    private @Nonnull HttpRequestBase toHttpRequest(@Nonnull Request request) {
+        final String method = request.getMethod();
+        HttpRequestBase result;
+
+        if( request.getBody() != null ) {
+            HttpEntityEnclosingRequestBase r = new HttpEntityEnclosingRequestBase() {
+                @Override public String getMethod() {
+                    return method;
+                }
+            };
+            r.setEntity(new TypedOutputEntity(request.getBody()));
+            result = r;
+        }
+        else {
+            result = new HttpRequestBase() {
+                @Override public String getMethod() {
+                    return method;
+                }
+            };
+        }
+        result.setURI(URI.create(request.getUrl()));
+        for( Header header : request.getHeaders() ) {
+            // the entity provides its own length
+            if( !"Content-Length".equalsIgnoreCase(header.getName()) ) {
+                result.addHeader(header.getName(), header.getValue());
+            }
+        }
+        return result;
+    }
+
+    static private class TypedOutputEntity extends AbstractHttpEntity {
+        private final TypedOutput output;
+
+        TypedOutputEntity(@Nonnull TypedOutput output) {
+            this.output = output;
+            setContentType(output.mimeType());
+        }
+
+        @Override public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override public long getContentLength() {
+            return output.length();
+        }
+
+        @Override public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(output.length() > 0 ? ( int ) Math.min(output.length(), Integer.MAX_VALUE) : 256);
+            output.writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override public void writeTo(OutputStream out) throws IOException {
+            output.writeTo(out);
+        }
+
+        @Override public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    static private class EntityTypedInput implements TypedInput {
+        private final HttpEntity entity;
+
+        EntityTypedInput(@Nonnull HttpEntity entity) {
+            this.entity = entity;
+        }
+
+        @Override public @Nullable String mimeType() {
+            org.apache.http.Header type = entity.getContentType();
+            return ( type == null ? "application/octet-stream" : type.getValue() );
+        }
+
+        @Override public long length() {
+            return entity.getContentLength();
+        }
+
+        @Override public InputStream in() throws IOException {
+            return entity.getContent();
+        }
+    }
+}
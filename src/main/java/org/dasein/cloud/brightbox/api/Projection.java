@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JSON fields of each model class a list operation actually uses. While a projection is set on the calling
+ * thread, the model type adapters skip every other field of the classes it names with
+ * {@link com.google.gson.stream.JsonReader#skipValue()} rather than decoding it; classes it does not name are
+ * decoded in full. Projections are immutable and meant to be kept in constants:
+ * <pre>
+ * static private final Projection VM_FIELDS = Projection.of(Server.class, "id", "name", "zone").with(Zone.class, "id");
+ *
+ * Projection previous = Projection.set(VM_FIELDS);
+ * try {
+ *     servers = service.listServers();
+ * }
+ * finally {
+ *     Projection.set(previous);
+ * }
+ * </pre>
+ * Calls made on the calling thread, and calls it submits through {@link AsyncCloudApiService}, are affected.
+ * Sparse results are never kept by the response cache.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class Projection {
+    static private final ThreadLocal<Projection> current = new ThreadLocal<Projection>();
+
+    private final Map<Class<?>, Set<String>> fields;
+
+    private Projection(@Nonnull Map<Class<?>, Set<String>> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param type a model class
+     * @param names the JSON names of the fields of that class to decode
+     * @return a projection of that class alone
+     */
+    static public @Nonnull Projection of(@Nonnull Class<?> type, @Nonnull String... names) {
+        return new Projection(Collections.<Class<?>, Set<String>>emptyMap()).with(type, names);
+    }
+
+    /**
+     * @param type a model class
+     * @param names the JSON names of the fields of that class to decode
+     * @return a copy of this projection that also restricts that class
+     */
+    public @Nonnull Projection with(@Nonnull Class<?> type, @Nonnull String... names) {
+        Map<Class<?>, Set<String>> copy = new HashMap<Class<?>, Set<String>>(fields);
+        copy.put(type, Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(names))));
+        return new Projection(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * @param projection the projection for the calls about to be made on this thread, or null for full decoding
+     * @return the previous value, to be restored with {@link #set(Projection)} once the calls are done
+     */
+    static public @Nullable Projection set(@Nullable Projection projection) {
+        Projection previous = current.get();
+
+        if( projection == null ) {
+            current.remove();
+        }
+        else {
+            current.set(projection);
+        }
+        return previous;
+    }
+
+    /**
+     * @return the projection set on the current thread, or null
+     */
+    static @Nullable Projection get() {
+        return current.get();
+    }
+
+    /**
+     * @return true if a projection is set on the current thread
+     */
+    static boolean isSet() {
+        return ( current.get() != null );
+    }
+
+    /**
+     * @param type a model class
+     * @return the JSON names of the fields of that class to decode on this thread, or null to decode all of them
+     */
+    static @Nullable Set<String> getFields(@Nonnull Class<?> type) {
+        Projection projection = current.get();
+
+        return ( projection == null ? null : projection.fields.get(type) );
+    }
+}
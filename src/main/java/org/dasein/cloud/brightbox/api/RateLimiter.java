@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import javax.annotation.Nonnegative;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket holding up to a burst of permits that refill at a steady rate. Callers that find the bucket empty
+ * reserve a future permit and sleep until it is due; reservations are handed out under a fair lock, so waiting
+ * callers are served in arrival order and the long-run rate never exceeds the configured one.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class RateLimiter {
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final double        permitsPerNano;
+    private final double        burst;
+
+    private double              permits;
+    private long                lastRefill;
+
+    /**
+     * @param permitsPerSecond the steady rate
+     * @param burst the most permits that may be used at once after the limiter has been idle, at least one
+     */
+    public RateLimiter(@Nonnegative double permitsPerSecond, @Nonnegative double burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.permits = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one permit, waiting for it if necessary.
+     * @param timeout the longest the caller is willing to wait
+     * @param unit the unit of the timeout
+     * @return true if a permit was taken, false if none could be had within the timeout
+     * @throws InterruptedException the thread was interrupted while waiting
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long timeoutNanos = unit.toNanos(timeout);
+        long waitNanos;
+
+        if( !lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS) ) {
+            return false;
+        }
+        try {
+            long now = System.nanoTime();
+            permits = Math.min(burst, permits + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+            waitNanos = ( permits >= 1 ? 0L : ( long ) Math.ceil((1 - permits) / permitsPerNano) );
+            if( waitNanos > timeoutNanos - (now - start) ) {
+                return false;
+            }
+            // a negative balance is the queue of reservations made by earlier callers
+            permits -= 1;
+        }
+        finally {
+            lock.unlock();
+        }
+        if( waitNanos > 0 ) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters maintained by {@link ConditionalCacheClient}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class ResponseCacheMetrics {
+    private final AtomicLong conditionalRequests = new AtomicLong();
+    private final AtomicLong notModified         = new AtomicLong();
+    private final AtomicLong evictions           = new AtomicLong();
+
+    void recordConditionalRequest() {
+        conditionalRequests.incrementAndGet();
+    }
+
+    void recordNotModified() {
+        notModified.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * @return number of GET requests sent with a validator of a cached response
+     */
+    public long getConditionalRequests() {
+        return conditionalRequests.get();
+    }
+
+    /**
+     * @return number of those answered 304 and served from the cache
+     */
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    /**
+     * @return number of entries dropped to stay within the byte budget
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "conditionalRequests=" + getConditionalRequests() + ", notModified=" + getNotModified()
+                + ", evictions=" + getEvictions();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters maintained by {@link RetryingClient}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class RetryMetrics {
+    private final AtomicLong calls          = new AtomicLong();
+    private final AtomicLong attempts       = new AtomicLong();
+    private final AtomicLong retries        = new AtomicLong();
+    private final AtomicLong exhausted      = new AtomicLong();
+    private final AtomicLong delayMillis    = new AtomicLong();
+    private final AtomicLong maxDelayMillis = new AtomicLong();
+
+    void recordCall() {
+        calls.incrementAndGet();
+    }
+
+    void recordAttempt() {
+        attempts.incrementAndGet();
+    }
+
+    void recordRetry(long delay) {
+        retries.incrementAndGet();
+        delayMillis.addAndGet(delay);
+        long max = maxDelayMillis.get();
+        while( delay > max && !maxDelayMillis.compareAndSet(max, delay) ) {
+            max = maxDelayMillis.get();
+        }
+    }
+
+    void recordExhausted() {
+        exhausted.incrementAndGet();
+    }
+
+    /**
+     * @return number of logical calls made through the client
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return number of HTTP requests sent, including retries
+     */
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    /**
+     * @return number of retries
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of calls that still failed with a retryable status once their retry budget was spent
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * @return total time spent waiting between attempts
+     */
+    public long getDelayMillis() {
+        return delayMillis.get();
+    }
+
+    /**
+     * @return the longest single wait between attempts
+     */
+    public long getMaxDelayMillis() {
+        return maxDelayMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + getCalls() + ", attempts=" + getAttempts() + ", retries=" + getRetries() + ", exhausted=" + getExhausted()
+                + ", delayMillis=" + getDelayMillis() + ", maxDelayMillis=" + getMaxDelayMillis();
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Retries requests answered with 423 (locked), 429 (too many requests), 500, 502, 503 or 504, waiting a full-jitter
+ * exponential backoff between attempts or the time given by the server in <code>Retry-After</code>. Other statuses,
+ * such as 501 (not implemented), will not change on a retry and are returned at once. Every attempt, the first one
+ * included, takes a permit from the {@link AccountRateLimits} of the account; an attempt that gets none in time is
+ * answered with a 429 without being sent. Requests answered by {@link CoalescingClient} or
+ * {@link ConditionalCacheClient} never get this far and take no permit. POST requests are not idempotent and are only retried when {@value #RETRY_NON_IDEMPOTENT} is set.
+ * <p>Context properties:</p>
+ * <ul>
+ *     <li>{@value #RETRY_MAX_RETRIES} - retries per call (default {@value #DEFAULT_RETRY_MAX_RETRIES}, 0 disables retries)</li>
+ *     <li>{@value #RETRY_BASE_DELAY} - backoff base in milliseconds (default {@value #DEFAULT_RETRY_BASE_DELAY})</li>
+ *     <li>{@value #RETRY_MAX_DELAY} - longest single wait in milliseconds (default {@value #DEFAULT_RETRY_MAX_DELAY})</li>
+ *     <li>{@value #RETRY_BUDGET} - total milliseconds a call may spend waiting (default {@value #DEFAULT_RETRY_BUDGET})</li>
+ *     <li>{@value #RETRY_NON_IDEMPOTENT} - also retry POST requests (default false)</li>
+ * </ul>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class RetryingClient implements Client {
+    static private final Logger logger = BrightBoxCloud.getLogger(RetryingClient.class);
+
+    static public final String RETRY_MAX_RETRIES    = "retryMaxRetries";
+    static public final String RETRY_BASE_DELAY     = "retryBaseDelay";
+    static public final String RETRY_MAX_DELAY      = "retryMaxDelay";
+    static public final String RETRY_BUDGET         = "retryBudget";
+    static public final String RETRY_NON_IDEMPOTENT = "retryNonIdempotent";
+
+    static public final int  DEFAULT_RETRY_MAX_RETRIES = 3;
+    static public final long DEFAULT_RETRY_BASE_DELAY  = 200L;
+    static public final long DEFAULT_RETRY_MAX_DELAY   = 10000L;
+    static public final long DEFAULT_RETRY_BUDGET      = 30000L;
+
+    static private final Random random = new Random();
+
+    private final Client            delegate;
+    private final AccountRateLimits rateLimits;
+    private final RetryMetrics      metrics;
+    private final int               maxRetries;
+    private final long              baseDelay;
+    private final long              maxDelay;
+    private final long              budget;
+    private final boolean           retryNonIdempotent;
+
+    public RetryingClient(@Nonnull Client delegate, @Nonnull ProviderContext ctx, @Nonnull AccountRateLimits rateLimits, @Nonnull RetryMetrics metrics) {
+        this.delegate = delegate;
+        this.rateLimits = rateLimits;
+        this.metrics = metrics;
+        this.maxRetries = Math.max(0, ContextProperties.getInt(ctx, RETRY_MAX_RETRIES, DEFAULT_RETRY_MAX_RETRIES));
+        this.baseDelay = Math.max(1L, ContextProperties.getLong(ctx, RETRY_BASE_DELAY, DEFAULT_RETRY_BASE_DELAY));
+        this.maxDelay = Math.max(baseDelay, ContextProperties.getLong(ctx, RETRY_MAX_DELAY, DEFAULT_RETRY_MAX_DELAY));
+        this.budget = Math.max(0L, ContextProperties.getLong(ctx, RETRY_BUDGET, DEFAULT_RETRY_BUDGET));
+        this.retryNonIdempotent = ContextProperties.getBoolean(ctx, RETRY_NON_IDEMPOTENT, false);
+    }
+
+    static boolean isRetryable(int status) {
+        switch( status ) {
+            case 423: case 429: case 500: case 502: case 503: case 504:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        boolean mayRetry = ( maxRetries > 0 && (retryNonIdempotent || !"POST".equalsIgnoreCase(request.getMethod())) );
+        long waited = 0L;
+
+        metrics.recordCall();
+        for( int attempt = 0; ; attempt++ ) {
+            Response limited = acquire(request);
+            if( limited != null ) {
+                return limited;
+            }
+            metrics.recordAttempt();
+            Response response = delegate.execute(request);
+            if( !mayRetry || !isRetryable(response.getStatus()) ) {
+                return response;
+            }
+            long delay = getRetryAfter(response);
+            if( delay < 0 ) {
+                // full jitter: uniformly random between zero and the capped exponential backoff
+                long ceiling = Math.min(maxDelay, baseDelay << Math.min(attempt, 30));
+                delay = ( long ) (random.nextDouble() * ceiling);
+            }
+            if( attempt >= maxRetries || waited + delay > budget ) {
+                metrics.recordExhausted();
+                return response;
+            }
+            discard(response);
+            if( logger.isDebugEnabled() ) {
+                logger.debug(request.getMethod() + " " + request.getUrl() + " returned " + response.getStatus() + ", retrying in " + delay + "ms");
+            }
+            metrics.recordRetry(delay);
+            try {
+                Thread.sleep(delay);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + request.getUrl());
+            }
+            waited += delay;
+        }
+    }
+
+    /**
+     * Takes a permit for one attempt from the rate limits of the account.
+     * @return null once a permit is taken, or a 429 response standing in for the attempt if none became available
+     * @throws InterruptedIOException the thread was interrupted while waiting
+     */
+    private @Nullable Response acquire(@Nonnull Request request) throws IOException {
+        try {
+            rateLimits.acquire("GET".equalsIgnoreCase(request.getMethod()));
+            return null;
+        }
+        catch( CloudException e ) {
+            if( Thread.currentThread().isInterrupted() ) {
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit of " + request.getUrl());
+            }
+            return new Response(request.getUrl(), 429, e.getMessage(), Collections.<Header>emptyList(), null);
+        }
+    }
+
+    /**
+     * @return the wait requested by the server in milliseconds, or -1 if none was given
+     */
+    private long getRetryAfter(@Nonnull Response response) {
+        for( Header header : response.getHeaders() ) {
+            if( !"Retry-After".equalsIgnoreCase(header.getName()) || header.getValue() == null ) {
+                continue;
+            }
+            String value = header.getValue().trim();
+            try {
+                return Math.max(0L, Long.parseLong(value) * 1000L);
+            }
+            catch( NumberFormatException ignore ) { }
+            try {
+                return Math.max(0L, DateUtils.parseDate(value).getTime() - System.currentTimeMillis());
+            }
+            catch( DateParseException ignore ) { }
+        }
+        return -1L;
+    }
+
+    /**
+     * Closes the body of a response that is about to be retried so its connection goes back to the pool.
+     */
+    private void discard(@Nonnull Response response) {
+        if( response.getBody() != null ) {
+            try {
+                response.getBody().in().close();
+            }
+            catch( IOException ignore ) { }
+        }
+    }
+}
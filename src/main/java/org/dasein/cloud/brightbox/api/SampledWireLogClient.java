@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.log4j.Logger;
+import retrofit.client.Client;
+import retrofit.client.Header;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedByteArray;
+import retrofit.mime.TypedInput;
+import retrofit.mime.TypedOutput;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs one in every {@value #WIRE_LOG_SAMPLE_RATE} requests to the wire logger at INFO level, with request and
+ * response bodies truncated to {@value #WIRE_LOG_MAX_BODY_BYTES} bytes (default {@value #DEFAULT_WIRE_LOG_MAX_BODY_BYTES}).
+ * Only the logged prefix of a response is copied; the body itself is still streamed to the caller.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class SampledWireLogClient implements Client {
+    static public final String WIRE_LOG_SAMPLE_RATE    = "wireLogSampleRate";
+    static public final String WIRE_LOG_MAX_BODY_BYTES = "wireLogMaxBodyBytes";
+
+    static public final int DEFAULT_WIRE_LOG_MAX_BODY_BYTES = 4096;
+
+    private final Client     delegate;
+    private final Logger     wire;
+    private final int        sampleRate;
+    private final int        maxBodyBytes;
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public SampledWireLogClient(@Nonnull Client delegate, @Nonnull Logger wire, int sampleRate, int maxBodyBytes) {
+        this.delegate = delegate;
+        this.wire = wire;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.maxBodyBytes = Math.max(0, maxBodyBytes);
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        long n = requestCount.getAndIncrement();
+        if( n % sampleRate != 0 || !wire.isInfoEnabled() ) {
+            return delegate.execute(request);
+        }
+        String id = Long.toHexString(n);
+        StringBuilder out = new StringBuilder();
+        out.append("---> [").append(id).append("] ").append(request.getMethod()).append(' ').append(request.getUrl());
+        for( Header header : request.getHeaders() ) {
+            if( !"Authorization".equalsIgnoreCase(header.getName()) ) {
+                out.append('\n').append(header.getName()).append(": ").append(header.getValue());
+            }
+        }
+        if( request.getBody() != null ) {
+            out.append('\n').append(toString(request.getBody(), maxBodyBytes));
+        }
+        wire.info(out.toString());
+
+        long start = System.currentTimeMillis();
+        Response response = delegate.execute(request);
+        StringBuilder in = new StringBuilder();
+        in.append("<--- [").append(id).append("] ").append(response.getStatus()).append(' ').append(response.getReason())
+                .append(" (").append(System.currentTimeMillis() - start).append("ms)");
+        for( Header header : response.getHeaders() ) {
+            in.append('\n').append(header.getName()).append(": ").append(header.getValue());
+        }
+        if( response.getBody() == null || maxBodyBytes == 0 ) {
+            wire.info(in.toString());
+            return response;
+        }
+        TypedInput body = new LoggingTypedInput(response.getBody(), in.toString());
+        return new Response(response.getUrl(), response.getStatus(), response.getReason(), response.getHeaders(), body);
+    }
+
+    private @Nonnull String toString(@Nonnull TypedOutput body, int limit) throws IOException {
+        if( body instanceof TypedByteArray ) {
+            byte[] bytes = (( TypedByteArray ) body).getBytes();
+            return toString(bytes, Math.min(bytes.length, limit), bytes.length);
+        }
+        BoundedOutputStream out = new BoundedOutputStream(limit);
+        body.writeTo(out);
+        return toString(out.toByteArray(), out.size(), out.getCount());
+    }
+
+    static private @Nonnull String toString(@Nonnull byte[] bytes, int length, long total) {
+        String text;
+        try {
+            text = new String(bytes, 0, length, "utf-8");
+        }
+        catch( UnsupportedEncodingException e ) {
+            text = new String(bytes, 0, length);
+        }
+        if( total > length ) {
+            text = text + "... (" + total + " bytes)";
+        }
+        return text;
+    }
+
+    /**
+     * Keeps the first bytes written and counts the rest.
+     */
+    static private class BoundedOutputStream extends ByteArrayOutputStream {
+        private final int limit;
+        private long      count;
+
+        BoundedOutputStream(int limit) {
+            super(Math.min(limit, 1024));
+            this.limit = limit;
+        }
+
+        @Override public synchronized void write(int b) {
+            if( size() < limit ) {
+                super.write(b);
+            }
+            count++;
+        }
+
+        @Override public synchronized void write(byte[] b, int off, int len) {
+            int keep = Math.min(len, limit - size());
+            if( keep > 0 ) {
+                super.write(b, off, keep);
+            }
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Copies the first {@link #maxBodyBytes} bytes read from the body and logs them, with the response line,
+     * when the body is closed.
+     */
+    private class LoggingTypedInput implements TypedInput {
+        private final TypedInput body;
+        private final String     responseLine;
+
+        LoggingTypedInput(@Nonnull TypedInput body, @Nonnull String responseLine) {
+            this.body = body;
+            this.responseLine = responseLine;
+        }
+
+        @Override public String mimeType() {
+            return body.mimeType();
+        }
+
+        @Override public long length() {
+            return body.length();
+        }
+
+        @Override public InputStream in() throws IOException {
+            final BoundedOutputStream copy = new BoundedOutputStream(maxBodyBytes);
+
+            return new FilterInputStream(body.in()) {
+                private boolean logged = false;
+
+                @Override public int read() throws IOException {
+                    int b = super.read();
+                    if( b >= 0 ) {
+                        copy.write(b);
+                    }
+                    return b;
+                }
+
+                @Override public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if( n > 0 ) {
+                        copy.write(b, off, n);
+                    }
+                    return n;
+                }
+
+                @Override public void close() throws IOException {
+                    try {
+                        super.close();
+                    }
+                    finally {
+                        if( !logged ) {
+                            logged = true;
+                            wire.info(responseLine + "\n" + SampledWireLogClient.toString(copy.toByteArray(), copy.size(), copy.getCount()));
+                        }
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable mapping between the server groups of an account and the firewall policies applied to them. Groups
+ * without a firewall policy are left out.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class ServerGroupIndex {
+    static public final String SERVER_GROUP_INDEX_TTL         = "serverGroupIndexTtl";
+    static public final long   DEFAULT_SERVER_GROUP_INDEX_TTL = 15000L;
+
+    private final Map<String, String> firewallIdsByGroup;
+    private final Map<String, String> groupIdsByFirewall;
+
+    public ServerGroupIndex(@Nonnull List<ServerGroup> serverGroups) {
+        Map<String, String> firewallIds = new HashMap<String, String>(serverGroups.size() * 2);
+        Map<String, String> groupIds = new HashMap<String, String>(serverGroups.size() * 2);
+
+        for( ServerGroup group : serverGroups ) {
+            if( group.getId() != null && group.getFirewallPolicy() != null && group.getFirewallPolicy().getId() != null ) {
+                firewallIds.put(group.getId(), group.getFirewallPolicy().getId());
+                groupIds.put(group.getFirewallPolicy().getId(), group.getId());
+            }
+        }
+        firewallIdsByGroup = Collections.unmodifiableMap(firewallIds);
+        groupIdsByFirewall = Collections.unmodifiableMap(groupIds);
+    }
+
+    /**
+     * @return firewall policy ids keyed by server group id
+     */
+    public @Nonnull Map<String, String> getFirewallIdsByGroup() {
+        return firewallIdsByGroup;
+    }
+
+    /**
+     * @param firewallId the id of a firewall policy
+     * @return the id of the server group the policy is applied to, or null if it is not applied to any
+     */
+    public @Nullable String getGroupId(@Nonnull String firewallId) {
+        return groupIdsByFirewall.get(firewallId);
+    }
+
+    @Override
+    public String toString() {
+        return firewallIdsByGroup.toString();
+    }
+}
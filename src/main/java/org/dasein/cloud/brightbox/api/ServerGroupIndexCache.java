@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the {@link ServerGroupIndex} of one account for {@value ServerGroupIndex#SERVER_GROUP_INDEX_TTL}
+ * milliseconds (default {@value ServerGroupIndex#DEFAULT_SERVER_GROUP_INDEX_TTL}). Only one thread lists the server
+ * groups at a time while the others wait for its result. The index is dropped as soon as a call that changes a server
+ * group or a firewall policy completes, and an index loaded while such a call was in progress is handed to its
+ * caller but not kept.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+class ServerGroupIndexCache {
+    static private final Projection FIELDS = Projection.of(ServerGroup.class, "id", "firewall_policy")
+            .with(FirewallPolicy.class, "id");
+
+    static private final Set<String> MUTATIONS = new HashSet<String>(Arrays.asList(
+            "createServerGroup", "deleteServerGroup", "addServersToGroup", "removeServersFromGroup",
+            "createFirewallPolicy", "updateFirewallPolicy", "deleteFirewallPolicy", "applyFirewallPolicyToServerGroup"
+    ));
+
+    static private class Entry {
+        final ServerGroupIndex index;
+        final long             expiresAt;
+
+        Entry(@Nonnull ServerGroupIndex index, long expiresAt) {
+            this.index = index;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long   ttl;
+    private final Object loadLock = new Object();
+
+    private volatile Entry entry;
+    private long           generation;
+
+    ServerGroupIndexCache(long ttl) {
+        this.ttl = Math.max(0L, ttl);
+    }
+
+    /**
+     * Returns the cached index, listing the server groups through the given service if it has expired.
+     * @param service the service of the account
+     * @return the server group index of the account
+     * @throws CloudException the server groups could not be listed
+     */
+    @Nonnull ServerGroupIndex get(@Nonnull CloudApiService service) throws CloudException {
+        Entry current = entry;
+
+        if( current != null && System.currentTimeMillis() < current.expiresAt ) {
+            return current.index;
+        }
+        synchronized( loadLock ) {
+            current = entry;
+            if( current != null && System.currentTimeMillis() < current.expiresAt ) {
+                return current.index;
+            }
+            long loading;
+            synchronized( this ) {
+                loading = generation;
+            }
+            ServerGroupIndex index;
+            Projection previous = Projection.set(FIELDS);
+            try {
+                index = new ServerGroupIndex(service.listServerGroups());
+            }
+            finally {
+                Projection.set(previous);
+            }
+            synchronized( this ) {
+                if( loading == generation ) {
+                    entry = new Entry(index, System.currentTimeMillis() + ttl);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Drops the cached index if the given call may have changed it.
+     * @param method the {@link CloudApiService} method that was called
+     */
+    void afterCall(@Nonnull Method method) {
+        if( MUTATIONS.contains(method.getName()) ) {
+            invalidate();
+        }
+    }
+
+    synchronized void invalidate() {
+        generation++;
+        entry = null;
+    }
+}
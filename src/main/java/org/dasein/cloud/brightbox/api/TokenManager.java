@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudErrorType;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.model.Token;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Owns the OAuth token of one account. Only one thread fetches a token at a time, bounded by the timeouts of the
+ * HTTP client, while the others wait for its result for at most {@value #TOKEN_WAIT_TIMEOUT} milliseconds (default
+ * {@value #DEFAULT_TOKEN_WAIT_TIMEOUT}); no lock is held during the fetch. A fresh token is requested in the
+ * background once the configured fraction ({@value #TOKEN_REFRESH_FRACTION}, default
+ * {@value #DEFAULT_TOKEN_REFRESH_FRACTION}) of its lifetime has passed, so callers do not normally see an expired token. The background refresh stops once the manager is closed.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class TokenManager {
+    static private final Logger logger = BrightBoxCloud.getLogger(TokenManager.class);
+
+    static public final String TOKEN_REFRESH_FRACTION         = "tokenRefreshFraction";
+    static public final double DEFAULT_TOKEN_REFRESH_FRACTION = 0.75;
+    static public final String TOKEN_WAIT_TIMEOUT             = "tokenWaitTimeout";
+    static public final long   DEFAULT_TOKEN_WAIT_TIMEOUT     = 60000L;
+
+    /**
+     * Tokens are considered expired this long before the expiry reported by the server.
+     */
+    static private final long EXPIRY_MARGIN = 5000L;
+
+    static private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "brightbox-token-refresh");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static private class TokenState {
+        final String token;
+        final long   expiresAt;
+
+        TokenState(@Nonnull String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+
+    private final AuthenticationService authenticationService;
+    private final String                clientId;
+    private final String                authorization;
+    private final double                refreshFraction;
+    private final long                  waitTimeout;
+    private final Object                fetchLock = new Object();
+
+    private volatile TokenState         state;
+    private FutureTask<String>          fetch;
+    private ScheduledFuture<?>          scheduledRefresh;
+    private boolean                     closed;
+
+    public TokenManager(@Nonnull AuthenticationService authenticationService, @Nonnull String clientId, @Nonnull String clientSecret, double refreshFraction, long waitTimeout) {
+        this.authenticationService = authenticationService;
+        this.clientId = clientId;
+        this.authorization = "Basic " + Base64.encodeBase64String((clientId + ":" + clientSecret).getBytes());
+        if( refreshFraction <= 0 || refreshFraction >= 1 ) {
+            logger.warn("Ignoring invalid " + TOKEN_REFRESH_FRACTION + " " + refreshFraction);
+            refreshFraction = DEFAULT_TOKEN_REFRESH_FRACTION;
+        }
+        this.refreshFraction = refreshFraction;
+        this.waitTimeout = Math.max(0L, waitTimeout);
+    }
+
+    /**
+     * @return the last token fetched, without checking its expiry; null if none has been fetched yet
+     */
+    public @Nullable String getCurrentToken() {
+        TokenState current = state;
+        return ( current == null ? null : current.token );
+    }
+
+    /**
+     * Returns a valid token, fetching one if there is none or the current one has expired.
+     * @return a valid access token
+     * @throws CloudException the token could not be obtained
+     */
+    public @Nonnull String getToken() throws CloudException {
+        TokenState current = state;
+
+        if( current != null && current.isValid() ) {
+            return current.token;
+        }
+        return refresh(current == null ? null : current.token);
+    }
+
+    /**
+     * Fetches a new token unless another thread has already replaced the given stale one, in which case
+     * its result is returned instead. A caller finding a fetch in flight waits for it rather than starting its own.
+     * @param staleToken the token the caller considers invalid, or null
+     * @return a valid access token
+     * @throws CloudException the token could not be obtained, or the fetch of another thread did not complete in time
+     */
+    public @Nonnull String refresh(@Nullable String staleToken) throws CloudException {
+        FutureTask<String> task;
+        boolean lead = false;
+
+        synchronized( fetchLock ) {
+            TokenState current = state;
+
+            if( current != null && current.isValid() && !current.token.equals(staleToken) ) {
+                return current.token;
+            }
+            task = fetch;
+            if( task == null ) {
+                task = new FutureTask<String>(new Callable<String>() {
+                    @Override public String call() throws CloudException {
+                        return fetchToken();
+                    }
+                });
+                fetch = task;
+                lead = true;
+            }
+        }
+        if( lead ) {
+            try {
+                task.run();
+            }
+            finally {
+                synchronized( fetchLock ) {
+                    if( fetch == task ) {
+                        fetch = null;
+                    }
+                }
+            }
+        }
+        return await(task, lead);
+    }
+
+    private @Nonnull String fetchToken() throws CloudException {
+        Token token = authenticationService.getToken(authorization, clientId, "none");
+        if( token == null || token.getAccessToken() == null ) {
+            throw new CloudException("Unable to authenticate");
+        }
+        long lifetime = token.getExpiresIn() * 1000L;
+        synchronized( fetchLock ) {
+            state = new TokenState(token.getAccessToken(), System.currentTimeMillis() + lifetime - EXPIRY_MARGIN);
+            scheduleRefresh(token.getAccessToken(), (long) (lifetime * refreshFraction));
+        }
+        return token.getAccessToken();
+    }
+
+    /**
+     * @param lead true if the calling thread ran the fetch, whose result is then already available
+     */
+    private @Nonnull String await(@Nonnull FutureTask<String> task, boolean lead) throws CloudException {
+        try {
+            return ( lead ? task.get() : task.get(waitTimeout, TimeUnit.MILLISECONDS) );
+        }
+        catch( TimeoutException e ) {
+            throw new CloudException(CloudErrorType.COMMUNICATION, 0, "Timeout", "No token was obtained within " + waitTimeout + "ms");
+        }
+        catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new CloudException(CloudErrorType.COMMUNICATION, 0, "Interrupted", "Interrupted while waiting for a token");
+        }
+        catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof CloudException ) {
+                throw ( CloudException ) cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw ( RuntimeException ) cause;
+            }
+            if( cause instanceof Error ) {
+                throw ( Error ) cause;
+            }
+            throw new CloudException(cause);
+        }
+    }
+
+    /**
+     * Cancels the background refresh. Tokens are still fetched on demand by {@link #getToken()} afterwards, but
+     * none is refreshed in the background any more.
+     */
+    public void close() {
+        synchronized( fetchLock ) {
+            closed = true;
+            if( scheduledRefresh != null ) {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+        }
+    }
+
+    private void scheduleRefresh(@Nonnull final String token, long delay) {
+        if( scheduledRefresh != null ) {
+            scheduledRefresh.cancel(false);
+            scheduledRefresh = null;
+        }
+        if( closed ) {
+            return;
+        }
+        scheduledRefresh = refresher.schedule(new Runnable() {
+            @Override public void run() {
+                try {
+                    refresh(token);
+                }
+                catch( Throwable t ) {
+                    logger.warn("Background token refresh failed, the current token will be used until it expires: " + t.getMessage());
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -34,13 +34,40 @@ public class BrightBoxComputeServices extends AbstractComputeServices<BrightBoxC
         super(provider);
     }
 
+    private transient volatile BrightBoxMachineImageSupport imageSupport;
+    private transient volatile BrightBoxVmSupport           vmSupport;
+
     @Override
     public @Nullable MachineImageSupport getImageSupport() {
-        return new BrightBoxMachineImageSupport(getProvider());
+        if( imageSupport == null ) {
+            synchronized( this ) {
+                if( imageSupport == null ) {
+                    imageSupport = new BrightBoxMachineImageSupport(getProvider());
+                }
+            }
+        }
+        return imageSupport;
     }
 
     @Override
     public @Nullable VirtualMachineSupport getVirtualMachineSupport() {
-        return new BrightBoxVmSupport(getProvider());
+        if( vmSupport == null ) {
+            synchronized( this ) {
+                if( vmSupport == null ) {
+                    vmSupport = new BrightBoxVmSupport(getProvider());
+                }
+            }
+        }
+        return vmSupport;
+    }
+
+    /**
+     * Stops the background work of the compute services. Called by {@link BrightBoxCloud#close()}.
+     */
+    public void close() {
+        BrightBoxVmSupport support = vmSupport;
+        if( support != null ) {
+            support.close();
+        }
     }
 }
@@ -21,9 +21,10 @@ package org.dasein.cloud.brightbox.compute;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
 import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.JsonStreams;
+import org.dasein.cloud.brightbox.api.Projection;
 import org.dasein.cloud.brightbox.api.model.Image;
 import org.dasein.cloud.compute.AbstractImageSupport;
-import org.dasein.cloud.compute.Architecture;
 import org.dasein.cloud.compute.ImageCapabilities;
 import org.dasein.cloud.compute.ImageClass;
 import org.dasein.cloud.compute.ImageCopyOptions;
@@ -31,7 +32,6 @@ import org.dasein.cloud.compute.ImageFilterOptions;
 import org.dasein.cloud.compute.MachineImage;
 import org.dasein.cloud.compute.MachineImageState;
 import org.dasein.cloud.compute.MachineImageType;
-import org.dasein.cloud.compute.Platform;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -42,6 +42,11 @@ import java.util.List;
  * Created by stas on 10/02/2015.
  */
 public class BrightBoxMachineImageSupport extends AbstractImageSupport<BrightBoxCloud> {
+    /**
+     * The fields {@link #toMachineImage(Image)} reads.
+     */
+    static final Projection IMAGE_FIELDS = Projection.of(Image.class,
+            "id", "name", "description", "status", "owner", "arch", "source", "licence_name", "disk_size", "public", "created_at");
 
     public BrightBoxMachineImageSupport(@Nonnull BrightBoxCloud provider) {
         super(provider);
@@ -86,22 +91,29 @@ public class BrightBoxMachineImageSupport extends AbstractImageSupport<BrightBox
         return listImages(options, true);
     }
 
-    private @Nonnull Iterable<MachineImage> listImages(@Nullable ImageFilterOptions options, boolean onlyPublic) throws CloudException, InternalException {
-        List<Image> images = getProvider().getCloudApiService().listImages();
-        List<MachineImage> results = new ArrayList<MachineImage>(images.size());
-        for( Image image : images ) {
-            MachineImage mi = toMachineImage(image);
-            if( mi == null ) {
-                continue;
-            }
-            if( options != null ) {
-                if( options.matches(mi) && ((onlyPublic && image.isPublic()) || !onlyPublic) ) {
-                    results.add(mi);
+    private @Nonnull Iterable<MachineImage> listImages(@Nullable final ImageFilterOptions options, final boolean onlyPublic) throws CloudException, InternalException {
+        final List<MachineImage> results = new ArrayList<MachineImage>();
+        Projection previous = Projection.set(IMAGE_FIELDS);
+        try {
+            JsonStreams.forEach(getProvider().getCloudApiService().streamImages(), Image.class, new JsonStreams.ElementHandler<Image>() {
+                @Override public void handle(@Nonnull Image image) throws CloudException, InternalException {
+                    MachineImage mi = toMachineImage(image);
+                    if( mi == null ) {
+                        return;
+                    }
+                    if( options != null ) {
+                        if( options.matches(mi) && ((onlyPublic && image.isPublic()) || !onlyPublic) ) {
+                            results.add(mi);
+                        }
+                    }
+                    else if ((onlyPublic && image.isPublic()) || !onlyPublic){
+                        results.add(mi);
+                    }
                 }
-            }
-            else if ((onlyPublic && image.isPublic()) || !onlyPublic){
-                results.add(mi);
-            }
+            });
+        }
+        finally {
+            Projection.set(previous);
         }
         return results;
     }
@@ -115,22 +127,6 @@ public class BrightBoxMachineImageSupport extends AbstractImageSupport<BrightBox
         return false;
     }
 
-    /**
-     * Convert BB architecture to core arch
-     * @param arch
-     * @return
-     */
-    private Architecture toArchitecture(String arch) {
-        Architecture result = null;
-        try {
-            return Architecture.valueOf(arch);
-        } catch( IllegalArgumentException ignore ) {}
-        if( "i686".equalsIgnoreCase(arch) ) {
-            return Architecture.I32;
-        }
-        return Architecture.I64;
-    }
-
     /**
      * Convert BB image state to core state
      * @param state
@@ -157,12 +153,13 @@ public class BrightBoxMachineImageSupport extends AbstractImageSupport<BrightBox
      * @return
      * @throws CloudException
      */
-    private MachineImage toMachineImage(Image image) throws CloudException, InternalException {
+    MachineImage toMachineImage(Image image) throws CloudException, InternalException {
         MachineImageState state = toState(image.getStatus());
         if( state == null ) {
             return null; // state is unsupported
         }
-        MachineImage result = MachineImage.getInstance(image.getOwner(), getContext().getRegionId(), image.getId(), ImageClass.MACHINE, state, image.getName(), image.getDescription(), toArchitecture(image.getArch()), Platform.guess(image.getName() + " " + image.getSource() + " " + image.getLicenceName()));
+        ImagePlatformMemo.Guess guess = ImagePlatformMemo.getInstance().forMachineImage(image);
+        MachineImage result = MachineImage.getInstance(image.getOwner(), getContext().getRegionId(), image.getId(), ImageClass.MACHINE, state, image.getName(), image.getDescription(), guess.getArchitecture(), guess.getPlatform());
         result.setMinimumDiskSizeGb(image.getDiskSize() * 1024);
         if( image.isPublic() ) {
             result.sharedWithPublic();
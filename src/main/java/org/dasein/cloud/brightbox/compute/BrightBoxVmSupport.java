@@ -19,14 +19,30 @@
 package org.dasein.cloud.brightbox.compute;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.log4j.Logger;
 import org.dasein.cloud.CloudException;
 import org.dasein.cloud.InternalException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.ResourceStatus;
 import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.AsyncCloudApiService;
+import org.dasein.cloud.brightbox.api.AsyncResults;
+import org.dasein.cloud.brightbox.api.CloudApiServiceHolder;
+import org.dasein.cloud.brightbox.api.ContextProperties;
+import org.dasein.cloud.brightbox.api.JsonStreams;
+import org.dasein.cloud.brightbox.api.Projection;
+import org.dasein.cloud.brightbox.api.RateLimiter;
+import org.dasein.cloud.brightbox.api.ServerGroupIndex;
+import org.dasein.cloud.brightbox.api.model.Account;
+import org.dasein.cloud.brightbox.api.model.CloudIp;
 import org.dasein.cloud.brightbox.api.model.CreateServer;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.Image;
 import org.dasein.cloud.brightbox.api.model.Server;
 import org.dasein.cloud.brightbox.api.model.ServerGroup;
 import org.dasein.cloud.brightbox.api.model.ServerGroupServer;
 import org.dasein.cloud.brightbox.api.model.ServerType;
+import org.dasein.cloud.brightbox.api.model.Zone;
 import org.dasein.cloud.compute.AbstractVMSupport;
 import org.dasein.cloud.compute.Architecture;
 import org.dasein.cloud.compute.Platform;
@@ -38,6 +54,7 @@ import org.dasein.cloud.compute.VirtualMachineProductFilterOptions;
 import org.dasein.cloud.compute.VmState;
 import org.dasein.util.uom.storage.Megabyte;
 import org.dasein.util.uom.storage.Storage;
+import retrofit.client.Response;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -47,16 +64,64 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by stas on 10/02/2015.
  */
 public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
+    static private final Logger logger = BrightBoxCloud.getLogger(BrightBoxVmSupport.class);
+
+    static public final String LAUNCH_PARALLELISM = "launchParallelism";
+    static public final String LAUNCH_RATE        = "launchRate";
+
+    static public final int    DEFAULT_LAUNCH_PARALLELISM = 4;
+    static public final double DEFAULT_LAUNCH_RATE        = 2.0;
+
+    /**
+     * Launch rate limiters shared by every batch of an account, keyed by endpoint, account and settings.
+     */
+    static private final ConcurrentMap<String, RateLimiter> launchLimiters = new ConcurrentHashMap<String, RateLimiter>();
+
     public BrightBoxVmSupport(BrightBoxCloud provider) {
         super(provider);
     }
 
+    /**
+     * The fields {@link #toVirtualMachine(Server, Map)} reads from servers and the server groups they belong to.
+     */
+    static final Projection VM_FIELDS = Projection
+            .of(Server.class, "id", "name", "status", "created_at", "account", "zone", "image", "server_type", "cloud_ips", "server_groups")
+            .with(Account.class, "id")
+            .with(Zone.class, "id")
+            .with(ServerType.class, "id")
+            .with(Image.class, "id", "name", "description", "source", "arch")
+            .with(CloudIp.class, "id")
+            .with(ServerGroup.class, "id", "firewall_policy")
+            .with(FirewallPolicy.class, "id");
+
+    /**
+     * The fields {@link #listVirtualMachineStatus()} reads from servers.
+     */
+    static final Projection STATUS_FIELDS = Projection.of(Server.class, "id", "status");
+
     private transient volatile BrightBoxVmCapabilities capabilities;
+
+    private final LaunchMetrics launchMetrics = new LaunchMetrics();
+
+    private transient volatile VmStateWatcher stateWatcher;
+
+    // server groups being created, by firewall id, so that concurrent launches create each group only once; the
+    // provider keeps a single support instance (see BrightBoxComputeServices), so this covers all of its launches
+    private final ConcurrentMap<String, FutureTask<String>> groupCreations = new ConcurrentHashMap<String, FutureTask<String>>();
+
     @Override
     public @Nonnull VirtualMachineCapabilities getCapabilities() throws InternalException, CloudException {
         if( capabilities == null ) {
@@ -86,13 +151,69 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
     @Override
     public @Nonnull Iterable<VirtualMachine> listVirtualMachines() throws InternalException, CloudException {
         final List<VirtualMachine> virtualMachines = new ArrayList<VirtualMachine>();
-        final List<ServerGroup> serverGroups = getProvider().getCloudApiService().listServerGroups();
-        for( Server server : getProvider().getCloudApiService().listServers() ) {
-            virtualMachines.add(toVirtualMachine(server, serverGroups));
+        Projection previous = Projection.set(VM_FIELDS);
+        try {
+            // the two largest lists of the API are fetched side by side, the groups on the shared async executor
+            Future<List<ServerGroup>> groups = getProvider().getAsyncCloudApiService().listServerGroups();
+            Response servers;
+            final Map<String, String> firewallIds;
+            try {
+                servers = getProvider().getCloudApiService().streamServers();
+            }
+            catch( CloudException e ) {
+                groups.cancel(true);
+                throw e;
+            }
+            catch( RuntimeException e ) {
+                groups.cancel(true);
+                throw e;
+            }
+            try {
+                firewallIds = toFirewallIdsByGroup(AsyncResults.get(groups));
+            }
+            catch( CloudException e ) {
+                JsonStreams.discard(servers);
+                throw e;
+            }
+            catch( InternalException e ) {
+                JsonStreams.discard(servers);
+                throw e;
+            }
+            catch( RuntimeException e ) {
+                JsonStreams.discard(servers);
+                throw e;
+            }
+            // convert while parsing so the decoded server list is never held in full
+            JsonStreams.forEach(servers, Server.class, new JsonStreams.ElementHandler<Server>() {
+                @Override public void handle(@Nonnull Server server) throws CloudException, InternalException {
+                    virtualMachines.add(toVirtualMachine(server, firewallIds));
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
         }
         return virtualMachines;
     }
 
+    @Override
+    public @Nonnull Iterable<ResourceStatus> listVirtualMachineStatus() throws InternalException, CloudException {
+        final List<ResourceStatus> statuses = new ArrayList<ResourceStatus>();
+        Projection previous = Projection.set(STATUS_FIELDS);
+        try {
+            // states alone need neither the server groups nor a full conversion
+            JsonStreams.forEach(getProvider().getCloudApiService().streamServers(), Server.class, new JsonStreams.ElementHandler<Server>() {
+                @Override public void handle(@Nonnull Server server) throws CloudException, InternalException {
+                    statuses.add(new ResourceStatus(server.getId(), toVmState(server.getStatus())));
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
+        }
+        return statuses;
+    }
+
     private VirtualMachineProduct toVmProduct(ServerType type) {
         VirtualMachineProduct product = new VirtualMachineProduct();
         product.setName(type.getName());
@@ -115,28 +236,282 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
 
     @Override
     public @Nonnull VirtualMachine launch(@Nonnull VMLaunchOptions opts) throws CloudException, InternalException {
-        final List<ServerGroup> serverGroups = getProvider().getCloudApiService().listServerGroups();
-        final Map<String, String> targetGroupIds = new HashMap<String, String>();
-        if( opts.getFirewallIds().length > 0 ) {
-            for( String firewallId : opts.getFirewallIds() ) {
-                boolean existingGroup = false;
-                for( ServerGroup group : serverGroups ) {
-                    if( group.getFirewallPolicy() == null ) {
-                        continue;
-                    }
-                    if( firewallId.equals(group.getFirewallPolicy().getId()) ) {
-                        existingGroup = true;
-                        targetGroupIds.put(group.getId(), group.getId());
-                        break;
-                    }
+        ServerGroupIndex serverGroupIndex = getProvider().getServerGroupIndex();
+        Map<String, String> firewallIds = new HashMap<String, String>(serverGroupIndex.getFirewallIdsByGroup());
+        List<String> targetGroupIds = toServerGroupIds(opts, serverGroupIndex, firewallIds);
+
+        Server server = getProvider().getCloudApiService().createServer(toCreateServer(opts, opts.getFriendlyName(), targetGroupIds));
+        return toVirtualMachine(server, firewallIds);
+    }
+
+    /**
+     * Launches the servers through {@link #launchAll(VMLaunchOptions, int)}. Servers that failed to launch are
+     * logged one by one; the error of the first of them is thrown only if none was launched.
+     */
+    @Override
+    public @Nonnull Iterable<String> launchMany(@Nonnull VMLaunchOptions withLaunchOptions, int count) throws CloudException, InternalException {
+        List<String> vmIds = new ArrayList<String>();
+        Exception error = null;
+        for( LaunchResult result : launchAll(withLaunchOptions, count) ) {
+            if( result.isLaunched() ) {
+                vmIds.add(result.getVirtualMachine().getProviderVirtualMachineId());
+                continue;
+            }
+            logger.warn("Failed to launch virtual machine " + result.getName() + " of a batch of " + count, result.getError());
+            if( error == null ) {
+                error = result.getError();
+            }
+        }
+        if( vmIds.isEmpty() && error != null ) {
+            if( error instanceof CloudException ) {
+                throw ( CloudException ) error;
+            }
+            if( error instanceof InternalException ) {
+                throw ( InternalException ) error;
+            }
+            throw new InternalException(error);
+        }
+        return vmIds;
+    }
+
+    /**
+     * Launches a number of servers with the same options. The server groups of the requested firewalls are resolved,
+     * and created if necessary, once for the whole batch. The servers are then created with at most
+     * {@value #LAUNCH_PARALLELISM} (default {@value #DEFAULT_LAUNCH_PARALLELISM}) requests in flight and no more than
+     * {@value #LAUNCH_RATE} (default {@value #DEFAULT_LAUNCH_RATE}) requests started per second, a rate of 0 removing
+     * that limit. The rate is shared by all batches launched concurrently for the account. The requests run on the
+     * asynchronous pool of the context, so the parallelism is capped at its
+     * {@value CloudApiServiceHolder#ASYNC_POOL_SIZE} (default {@value CloudApiServiceHolder#DEFAULT_ASYNC_POOL_SIZE})
+     * threads, which other asynchronous calls share. When more than one server is requested, their names get a
+     * <code>-1</code>, <code>-2</code>, ... suffix.
+     * @param opts the launch options shared by all servers
+     * @param count the number of servers to launch
+     * @return the outcome of each server, in request order
+     * @throws CloudException the server groups could not be resolved
+     * @throws InternalException the count is invalid, or the thread was interrupted; the servers requested before the
+     * interruption are waited for and their ids given in the message
+     */
+    public @Nonnull List<LaunchResult> launchAll(@Nonnull VMLaunchOptions opts, int count) throws CloudException, InternalException {
+        if( count < 1 ) {
+            throw new InternalException("Invalid attempt to launch fewer than 1 virtual machine (requested " + count + ")");
+        }
+        long start = System.nanoTime();
+        ProviderContext ctx = getContext();
+        int poolSize = Math.max(1, ContextProperties.getInt(ctx, CloudApiServiceHolder.ASYNC_POOL_SIZE, CloudApiServiceHolder.DEFAULT_ASYNC_POOL_SIZE));
+        int parallelism = Math.min(poolSize, Math.max(1, ContextProperties.getInt(ctx, LAUNCH_PARALLELISM, DEFAULT_LAUNCH_PARALLELISM)));
+        RateLimiter rateLimiter = getLaunchLimiter(ctx, parallelism);
+
+        ServerGroupIndex serverGroupIndex = getProvider().getServerGroupIndex();
+        Map<String, String> firewallIds = new HashMap<String, String>(serverGroupIndex.getFirewallIdsByGroup());
+        List<String> targetGroupIds = toServerGroupIds(opts, serverGroupIndex, firewallIds);
+
+        AsyncCloudApiService service = getProvider().getAsyncCloudApiService();
+        List<String> names = new ArrayList<String>(count);
+        List<Future<Server>> servers = new ArrayList<Future<Server>>(count);
+        List<LaunchResult> results = new ArrayList<LaunchResult>(count);
+        try {
+            for( int i = 0; i < count; i++ ) {
+                if( Thread.interrupted() ) {
+                    throw new InterruptedException();
+                }
+                // the oldest request must complete before another one is started
+                if( i >= parallelism ) {
+                    results.add(toLaunchResult(names.get(i - parallelism), servers.get(i - parallelism), firewallIds));
+                }
+                if( rateLimiter != null ) {
+                    rateLimiter.acquire(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                }
+                String name = ( count == 1 || opts.getFriendlyName() == null ? opts.getFriendlyName() : opts.getFriendlyName() + "-" + (i + 1) );
+                names.add(name == null ? String.valueOf(i + 1) : name);
+                servers.add(service.createServer(toCreateServer(opts, name, targetGroupIds)));
+            }
+        }
+        catch( InterruptedException e ) {
+            // the requests already sent create their servers anyway, so wait for them rather than lose their ids
+            for( int i = results.size(); i < servers.size(); i++ ) {
+                results.add(toLaunchResult(names.get(i), servers.get(i), firewallIds));
+            }
+            Thread.currentThread().interrupt();
+            List<String> vmIds = new ArrayList<String>();
+            for( LaunchResult result : results ) {
+                if( result.isLaunched() ) {
+                    vmIds.add(result.getVirtualMachine().getProviderVirtualMachineId());
+                }
+            }
+            launchMetrics.recordBatch(count, vmIds.size(), System.nanoTime() - start);
+            throw new InternalException("Interrupted while launching " + count + " virtual machines after " + servers.size()
+                    + " were requested, launched " + vmIds, e);
+        }
+        for( int i = results.size(); i < servers.size(); i++ ) {
+            results.add(toLaunchResult(names.get(i), servers.get(i), firewallIds));
+        }
+        int launched = 0;
+        for( LaunchResult result : results ) {
+            if( result.isLaunched() ) {
+                launched++;
+            }
+        }
+        launchMetrics.recordBatch(count, launched, System.nanoTime() - start);
+        return results;
+    }
+
+    /**
+     * @return the launch rate limiter shared by the batches of the account, or null if the rate is not limited
+     */
+    static private @Nullable RateLimiter getLaunchLimiter(@Nonnull ProviderContext ctx, int burst) {
+        double rate = ContextProperties.getDouble(ctx, LAUNCH_RATE, DEFAULT_LAUNCH_RATE);
+
+        if( rate <= 0 ) {
+            return null;
+        }
+        String key = ctx.getCloud().getEndpoint() + "|" + ctx.getAccountNumber() + "|" + rate + "|" + burst;
+        RateLimiter limiter = launchLimiters.get(key);
+
+        if( limiter == null ) {
+            limiter = new RateLimiter(rate, burst);
+            RateLimiter existing = launchLimiters.putIfAbsent(key, limiter);
+            if( existing != null ) {
+                limiter = existing;
+            }
+        }
+        return limiter;
+    }
+
+    /**
+     * Returns the watcher that waits for virtual machines of this provider to reach a state, checking all of them
+     * with one server listing per poll rather than one request per machine.
+     * @return the state watcher of this provider
+     */
+    public @Nonnull VmStateWatcher getStateWatcher() {
+        if( stateWatcher == null ) {
+            synchronized( this ) {
+                if( stateWatcher == null ) {
+                    ProviderContext ctx = getContext();
+                    stateWatcher = new VmStateWatcher(getProvider(), this,
+                            ContextProperties.getLong(ctx, VmStateWatcher.WATCH_FAST_POLL_INTERVAL, VmStateWatcher.DEFAULT_WATCH_FAST_POLL_INTERVAL),
+                            ContextProperties.getLong(ctx, VmStateWatcher.WATCH_POLL_INTERVAL, VmStateWatcher.DEFAULT_WATCH_POLL_INTERVAL));
+                }
+            }
+        }
+        return stateWatcher;
+    }
+
+    /**
+     * Stops the state watcher, failing its pending watches. Called when the provider is closed.
+     */
+    void close() {
+        VmStateWatcher watcher = stateWatcher;
+        if( watcher != null ) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * @return the counters of the batch launches made through this support
+     */
+    public @Nonnull LaunchMetrics getLaunchMetrics() {
+        return launchMetrics;
+    }
+
+    /**
+     * Waits for a server creation request and converts its outcome. A request that was sent creates its server even if
+     * the caller is interrupted, so the wait is not cut short by an interrupt; the interrupt is kept for the caller.
+     */
+    private @Nonnull LaunchResult toLaunchResult(@Nonnull String name, @Nonnull Future<Server> server, @Nonnull Map<String, String> firewallIds) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while( !server.isDone() ) {
+                try {
+                    server.get();
                 }
-                if( !existingGroup ) {
-                    final ServerGroup newGroup = getProvider().getCloudApiService().createServerGroup(firewallId, "Group for "+firewallId);
-                    targetGroupIds.put(newGroup.getId(), newGroup.getId());
-                    getProvider().getCloudApiService().applyFirewallPolicyToServerGroup(firewallId, newGroup.getId());
+                catch( InterruptedException e ) {
+                    interrupted = true;
                 }
+                catch( ExecutionException ignore ) { }
+                catch( CancellationException ignore ) { }
             }
+            VirtualMachine vm = toVirtualMachine(AsyncResults.get(server), firewallIds);
+            if( vm == null ) {
+                return new LaunchResult(name, new CloudException("No server was returned for " + name));
+            }
+            return new LaunchResult(name, vm);
+        }
+        catch( CloudException e ) {
+            return new LaunchResult(name, e);
         }
+        catch( InternalException e ) {
+            return new LaunchResult(name, e);
+        }
+        catch( RuntimeException e ) {
+            return new LaunchResult(name, e);
+        }
+        finally {
+            if( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Resolves the firewalls of the launch options to the server groups they are applied to, creating a group for each
+     * firewall that is not applied to any yet.
+     * @param opts the launch options
+     * @param serverGroupIndex the current server group index
+     * @param firewallIds firewall ids by server group id, to which created groups are added
+     * @return the ids of the server groups to place the server in
+     * @throws CloudException a server group could not be created
+     * @throws InternalException a server group could not be created
+     */
+    private @Nonnull List<String> toServerGroupIds(@Nonnull VMLaunchOptions opts, @Nonnull ServerGroupIndex serverGroupIndex, @Nonnull Map<String, String> firewallIds) throws CloudException, InternalException {
+        List<String> targetGroupIds = new ArrayList<String>();
+        for( String firewallId : opts.getFirewallIds() ) {
+            String groupId = serverGroupIndex.getGroupId(firewallId);
+            if( groupId == null ) {
+                groupId = createServerGroup(firewallId);
+                firewallIds.put(groupId, firewallId);
+            }
+            if( !targetGroupIds.contains(groupId) ) {
+                targetGroupIds.add(groupId);
+            }
+        }
+        return targetGroupIds;
+    }
+
+    /**
+     * Creates a server group for the given firewall. Callers creating a group for the same firewall at the same time
+     * share the group created by the first one, and the index is checked again first in case another caller has just
+     * created it.
+     * @param firewallId the id of the firewall policy to apply to the group
+     * @return the id of the server group the firewall is applied to
+     * @throws CloudException the group could not be created
+     * @throws InternalException the group could not be created
+     */
+    private @Nonnull String createServerGroup(@Nonnull final String firewallId) throws CloudException, InternalException {
+        FutureTask<String> creation = new FutureTask<String>(new Callable<String>() {
+            @Override public String call() throws Exception {
+                String groupId = getProvider().getServerGroupIndex().getGroupId(firewallId);
+                if( groupId == null ) {
+                    ServerGroup group = getProvider().getCloudApiService().createServerGroup(firewallId, "Group for "+firewallId);
+                    getProvider().getCloudApiService().applyFirewallPolicyToServerGroup(firewallId, group.getId());
+                    groupId = group.getId();
+                }
+                return groupId;
+            }
+        });
+        FutureTask<String> existing = groupCreations.putIfAbsent(firewallId, creation);
+        if( existing == null ) {
+            try {
+                creation.run();
+            }
+            finally {
+                groupCreations.remove(firewallId, creation);
+            }
+            existing = creation;
+        }
+        return AsyncResults.get(existing);
+    }
+
+    private @Nonnull CreateServer toCreateServer(@Nonnull VMLaunchOptions opts, @Nullable String name, @Nonnull List<String> serverGroupIds) {
         String userData = null;
         if( opts.getUserData() != null ) {
             try {
@@ -144,17 +519,14 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
             }
             catch( UnsupportedEncodingException ignore ) { }
         }
-
-        Server server = getProvider().getCloudApiService().createServer(
-                new CreateServer(opts.getMachineImageId()).withName(opts.getFriendlyName()).withServerTypeId(opts.getStandardProductId()).withZone(opts.getDataCenterId()).withUserData(userData).withServerGroupIds(new ArrayList<String>(targetGroupIds.values()))
-        );
-        return toVirtualMachine(server, serverGroups);
+        return new CreateServer(opts.getMachineImageId()).withName(name).withServerTypeId(opts.getStandardProductId()).withZone(opts.getDataCenterId()).withUserData(userData).withServerGroupIds(serverGroupIds);
     }
 
     @Override
     public @Nullable VirtualMachine getVirtualMachine(@Nonnull String vmId) throws InternalException, CloudException {
         try {
-            return toVirtualMachine(getProvider().getCloudApiService().getServer(vmId), getProvider().getCloudApiService().listServerGroups());
+            Server server = getProvider().getCloudApiService().getServer(vmId);
+            return toVirtualMachine(server, getProvider().getServerGroupIndex().getFirewallIdsByGroup());
         } catch( CloudException e ) {
             if( e.getHttpCode() == 404 ) {
                 return null;
@@ -186,7 +558,17 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
         getProvider().getCloudApiService().stopServer(vmId);
     }
 
-    private VirtualMachine toVirtualMachine(@Nullable Server server, @Nonnull List<ServerGroup> globalServerGroups) throws CloudException, InternalException {
+    /**
+     * Maps the id of every server group with a firewall policy to the id of that policy, so that the firewalls of
+     * each server of a listing are resolved with one lookup per group the server belongs to.
+     * @param serverGroups the server groups of the account
+     * @return firewall policy ids keyed by server group id
+     */
+    static @Nonnull Map<String, String> toFirewallIdsByGroup(@Nonnull List<ServerGroup> serverGroups) {
+        return new ServerGroupIndex(serverGroups).getFirewallIdsByGroup();
+    }
+
+    VirtualMachine toVirtualMachine(@Nullable Server server, @Nonnull Map<String, String> firewallIdsByGroup) throws CloudException, InternalException {
         if( server == null ) {
             return null;
         }
@@ -202,30 +584,22 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
         vm.setProviderRegionId(getContext().getRegionId());
         vm.setProviderMachineImageId(server.getImage().getId());
         vm.setProductId(server.getServerType().getId());
-        if( "i686".equalsIgnoreCase(server.getImage().getArch()) ) {
-            vm.setArchitecture(Architecture.I32);
-        }
-        else {
-            vm.setArchitecture(Architecture.I64);
-
-        }
-        List<ServerGroup> vmServerGroups = server.getServerGroups();
+        // the image part of the guess is shared by every server built from the same image
+        ImagePlatformMemo.Guess guess = ImagePlatformMemo.getInstance().forVirtualMachine(server.getImage());
+        vm.setArchitecture(guess.getArchitecture());
         List<String> firewalls = new ArrayList<String>();
-        for( ServerGroup serverGroup : globalServerGroups ) {
-            if( vmServerGroups.contains(serverGroup) ) {
-                firewalls.add(serverGroup.getFirewallPolicy().getId());
+        if( server.getServerGroups() != null ) {
+            for( ServerGroup serverGroup : server.getServerGroups() ) {
+                String firewallId = firewallIdsByGroup.get(serverGroup.getId());
+                if( firewallId != null ) {
+                    firewalls.add(firewallId);
+                }
             }
         }
         vm.setProviderFirewallIds(firewalls.toArray(new String[firewalls.size()]));
         vm.setPlatform(Platform.guess(vm.getName()));
         if( vm.getPlatform() == Platform.UNKNOWN ) {
-            vm.setPlatform(Platform.guess(server.getImage().getName()));
-        }
-        if( vm.getPlatform() == Platform.UNKNOWN ) {
-            vm.setPlatform(Platform.guess(server.getImage().getDescription()));
-        }
-        if( vm.getPlatform() == Platform.UNKNOWN ) {
-            vm.setPlatform(Platform.guess(server.getImage().getSource()));
+            vm.setPlatform(guess.getPlatform());
         }
         vm.setCurrentState(toVmState(server.getStatus()));
         if( server.getCloudIps() != null && server.getCloudIps().size() > 0 ) {
@@ -235,7 +609,7 @@ public class BrightBoxVmSupport extends AbstractVMSupport<BrightBoxCloud> {
         return vm;
     }
 
-    private VmState toVmState(String state) {
+    VmState toVmState(String state) {
         VmState result = null;
         if( "active".equalsIgnoreCase(state) ) {
             result = VmState.RUNNING;
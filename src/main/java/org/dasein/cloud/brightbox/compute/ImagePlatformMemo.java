@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.compute.Architecture;
+import org.dasein.cloud.compute.Platform;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the {@link Platform} and {@link Architecture} guessed for each image, so that the many servers built
+ * from the same image, and the image itself, are converted without scanning its metadata again. An entry is only
+ * used while the name, description, source, licence and architecture it was guessed from are unchanged. At most
+ * {@value #MAX_ENTRIES} images are remembered; once reached, the memo starts over.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class ImagePlatformMemo {
+    static private final int MAX_ENTRIES = 4096;
+
+    static private final ImagePlatformMemo instance = new ImagePlatformMemo();
+
+    /**
+     * @return the memo shared by the virtual machine and image supports of all providers
+     */
+    static public @Nonnull ImagePlatformMemo getInstance() {
+        return instance;
+    }
+
+    /**
+     * What was guessed for one image, with the metadata it was guessed from.
+     */
+    static final class Guess {
+        private final String       name;
+        private final String       description;
+        private final String       source;
+        private final String       licenceName;
+        private final String       arch;
+        private final Platform     platform;
+        private final Architecture architecture;
+
+        private Guess(@Nullable String name, @Nullable String description, @Nullable String source, @Nullable String licenceName, @Nullable String arch, @Nonnull Platform platform) {
+            this.name = name;
+            this.description = description;
+            this.source = source;
+            this.licenceName = licenceName;
+            this.arch = arch;
+            this.platform = platform;
+            this.architecture = toArchitecture(arch);
+        }
+
+        private boolean isFor(@Nullable String name, @Nullable String description, @Nullable String source, @Nullable String licenceName, @Nullable String arch) {
+            return equals(this.name, name) && equals(this.description, description) && equals(this.source, source)
+                    && equals(this.licenceName, licenceName) && equals(this.arch, arch);
+        }
+
+        static private boolean equals(@Nullable String a, @Nullable String b) {
+            return ( a == null ? b == null : a.equals(b) );
+        }
+
+        @Nonnull Platform getPlatform() {
+            return platform;
+        }
+
+        @Nonnull Architecture getArchitecture() {
+            return architecture;
+        }
+    }
+
+    /**
+     * Convert BB architecture to core arch
+     * @param arch
+     * @return
+     */
+    static private @Nonnull Architecture toArchitecture(@Nullable String arch) {
+        if( arch != null ) {
+            try {
+                return Architecture.valueOf(arch);
+            } catch( IllegalArgumentException ignore ) {}
+        }
+        if( "i686".equalsIgnoreCase(arch) ) {
+            return Architecture.I32;
+        }
+        return Architecture.I64;
+    }
+
+    // the two supports guess from different metadata, so their guesses are kept apart
+    private final ConcurrentMap<String, Guess> vmGuesses    = new ConcurrentHashMap<String, Guess>();
+    private final ConcurrentMap<String, Guess> imageGuesses = new ConcurrentHashMap<String, Guess>();
+    private final AtomicLong                   hits         = new AtomicLong();
+    private final AtomicLong                   misses       = new AtomicLong();
+    private final AtomicLong                   resets       = new AtomicLong();
+
+    private ImagePlatformMemo() { }
+
+    /**
+     * Guesses the platform of the servers built from an image from its name, then its description, then its source.
+     * @param image the image of a server
+     * @return the platform and architecture of the image
+     */
+    @Nonnull Guess forVirtualMachine(@Nonnull Image image) {
+        Guess guess = lookup(vmGuesses, image.getId(), image.getName(), image.getDescription(), image.getSource(), null, image.getArch());
+        if( guess == null ) {
+            Platform platform = Platform.guess(image.getName());
+            if( platform == Platform.UNKNOWN ) {
+                platform = Platform.guess(image.getDescription());
+            }
+            if( platform == Platform.UNKNOWN ) {
+                platform = Platform.guess(image.getSource());
+            }
+            guess = store(vmGuesses, image.getId(), new Guess(image.getName(), image.getDescription(), image.getSource(), null, image.getArch(), platform));
+        }
+        return guess;
+    }
+
+    /**
+     * Guesses the platform of an image from its name, source and licence together.
+     * @param image the image
+     * @return the platform and architecture of the image
+     */
+    @Nonnull Guess forMachineImage(@Nonnull Image image) {
+        Guess guess = lookup(imageGuesses, image.getId(), image.getName(), null, image.getSource(), image.getLicenceName(), image.getArch());
+        if( guess == null ) {
+            Platform platform = Platform.guess(image.getName() + " " + image.getSource() + " " + image.getLicenceName());
+            guess = store(imageGuesses, image.getId(), new Guess(image.getName(), null, image.getSource(), image.getLicenceName(), image.getArch(), platform));
+        }
+        return guess;
+    }
+
+    private @Nullable Guess lookup(@Nonnull ConcurrentMap<String, Guess> guesses, @Nullable String id, @Nullable String name, @Nullable String description, @Nullable String source, @Nullable String licenceName, @Nullable String arch) {
+        Guess guess = ( id == null ? null : guesses.get(id) );
+        if( guess != null && guess.isFor(name, description, source, licenceName, arch) ) {
+            hits.incrementAndGet();
+            return guess;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private @Nonnull Guess store(@Nonnull ConcurrentMap<String, Guess> guesses, @Nullable String id, @Nonnull Guess guess) {
+        if( id != null ) {
+            if( guesses.size() >= MAX_ENTRIES && !guesses.containsKey(id) ) {
+                guesses.clear();
+                resets.incrementAndGet();
+            }
+            guesses.put(id, guess);
+        }
+        return guess;
+    }
+
+    /**
+     * @return number of conversions that reused an earlier guess
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of conversions that had to guess
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of times the memo was full and started over
+     */
+    public long getResets() {
+        return resets.get();
+    }
+
+    /**
+     * @return the fraction of conversions that reused an earlier guess
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return ( total == 0 ? 0.0 : ( double ) h / total );
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + ", misses=" + getMisses() + ", resets=" + getResets() + ", hitRate=" + getHitRate();
+    }
+}
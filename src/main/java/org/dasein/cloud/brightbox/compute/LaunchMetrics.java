@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters maintained by {@link BrightBoxVmSupport#launchAll(org.dasein.cloud.compute.VMLaunchOptions, int)}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class LaunchMetrics {
+    private final AtomicLong batches     = new AtomicLong();
+    private final AtomicLong requested   = new AtomicLong();
+    private final AtomicLong launched    = new AtomicLong();
+    private final AtomicLong failed      = new AtomicLong();
+    private final AtomicLong batchMillis = new AtomicLong();
+
+    void recordBatch(int count, int launchedCount, long elapsedNanos) {
+        batches.incrementAndGet();
+        requested.addAndGet(count);
+        launched.addAndGet(launchedCount);
+        failed.addAndGet(count - launchedCount);
+        batchMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * @return number of batch launches
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of servers requested by all batches
+     */
+    public long getRequested() {
+        return requested.get();
+    }
+
+    /**
+     * @return number of those created
+     */
+    public long getLaunched() {
+        return launched.get();
+    }
+
+    /**
+     * @return number of those that failed
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return milliseconds spent in batch launches, from server group resolution to the last server created
+     */
+    public long getBatchMillis() {
+        return batchMillis.get();
+    }
+
+    /**
+     * @return servers created per second of batch launch time
+     */
+    public double getLaunchesPerSecond() {
+        long millis = batchMillis.get();
+        return ( millis == 0 ? 0.0 : launched.get() * 1000.0 / millis );
+    }
+
+    @Override
+    public String toString() {
+        return "batches=" + getBatches() + ", requested=" + getRequested() + ", launched=" + getLaunched() + ", failed=" + getFailed()
+                + ", launchesPerSecond=" + getLaunchesPerSecond();
+    }
+}
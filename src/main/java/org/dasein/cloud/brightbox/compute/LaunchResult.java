@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import org.dasein.cloud.compute.VirtualMachine;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Outcome of one of the servers requested by {@link BrightBoxVmSupport#launchAll(org.dasein.cloud.compute.VMLaunchOptions, int)}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public final class LaunchResult {
+    private final String         name;
+    private final VirtualMachine virtualMachine;
+    private final Exception      error;
+
+    LaunchResult(@Nonnull String name, @Nonnull VirtualMachine virtualMachine) {
+        this.name = name;
+        this.virtualMachine = virtualMachine;
+        this.error = null;
+    }
+
+    LaunchResult(@Nonnull String name, @Nonnull Exception error) {
+        this.name = name;
+        this.virtualMachine = null;
+        this.error = error;
+    }
+
+    /**
+     * @return the name the server was requested with
+     */
+    public @Nonnull String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the server was created
+     */
+    public boolean isLaunched() {
+        return ( virtualMachine != null );
+    }
+
+    /**
+     * @return the launched virtual machine, or null if the launch failed
+     */
+    public @Nullable VirtualMachine getVirtualMachine() {
+        return virtualMachine;
+    }
+
+    /**
+     * @return the reason the launch failed, or null if it succeeded
+     */
+    public @Nullable Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return name + ( virtualMachine != null ? " launched as " + virtualMachine.getProviderVirtualMachineId() : " failed: " + error.getMessage() );
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.compute;
+
+import org.apache.log4j.Logger;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.InternalException;
+import org.dasein.cloud.brightbox.BrightBoxCloud;
+import org.dasein.cloud.brightbox.api.JsonStreams;
+import org.dasein.cloud.brightbox.api.Projection;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.compute.VmState;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for virtual machines to reach a state. All watched machines are checked together, by one server listing
+ * decoding only ids and states, every {@value #WATCH_FAST_POLL_INTERVAL} milliseconds (default
+ * {@value #DEFAULT_WATCH_FAST_POLL_INTERVAL}) while any of them is still being created and every
+ * {@value #WATCH_POLL_INTERVAL} milliseconds (default {@value #DEFAULT_WATCH_POLL_INTERVAL}) otherwise. A machine
+ * missing from the listing is checked at the fast interval at first, then at doubling intervals up to the normal one.
+ * Polling stops while nothing is watched, and for good once the provider is closed, failing the pending watches.
+ * Callbacks run on the polling thread, or on the thread closing the provider, and should return quickly.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class VmStateWatcher {
+    static private final Logger logger = BrightBoxCloud.getLogger(VmStateWatcher.class);
+
+    static public final String WATCH_FAST_POLL_INTERVAL = "vmWatchFastPollInterval";
+    static public final String WATCH_POLL_INTERVAL      = "vmWatchPollInterval";
+
+    static public final long DEFAULT_WATCH_FAST_POLL_INTERVAL = 2000L;
+    static public final long DEFAULT_WATCH_POLL_INTERVAL      = 10000L;
+
+    static private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "brightbox-vm-state-watcher");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    /**
+     * Receives the outcome of a watch. Exactly one of its methods is called, once.
+     */
+    public interface Callback {
+        /**
+         * @param vmId the watched virtual machine
+         * @param state the state it reached
+         */
+        void stateReached(@Nonnull String vmId, @Nonnull VmState state);
+
+        /**
+         * @param vmId the watched virtual machine
+         * @param lastState the last state seen, or null if the machine was never seen
+         * @param reason why the target state will not be reported
+         */
+        void watchFailed(@Nonnull String vmId, @Nullable VmState lastState, @Nonnull String reason);
+    }
+
+    static private class Watch {
+        final String   vmId;
+        final VmState  targetState;
+        final long     deadline;
+        final Callback callback;
+        VmState        lastState;
+        int            misses;
+
+        Watch(@Nonnull String vmId, @Nonnull VmState targetState, long deadline, @Nonnull Callback callback) {
+            this.vmId = vmId;
+            this.targetState = targetState;
+            this.deadline = deadline;
+            this.callback = callback;
+        }
+    }
+
+    private final BrightBoxCloud     provider;
+    private final BrightBoxVmSupport support;
+    private final long               fastInterval;
+    private final long               interval;
+    private final List<Watch>        watches = new ArrayList<Watch>();
+    private final Runnable           poll = new Runnable() {
+        @Override public void run() {
+            poll();
+        }
+    };
+
+    private ScheduledFuture<?> next;
+    private boolean            polling;
+    private boolean            closed;
+
+    VmStateWatcher(@Nonnull BrightBoxCloud provider, @Nonnull BrightBoxVmSupport support, long fastInterval, long interval) {
+        this.provider = provider;
+        this.support = support;
+        this.fastInterval = Math.max(1L, fastInterval);
+        this.interval = Math.max(this.fastInterval, interval);
+    }
+
+    /**
+     * Watches a virtual machine until it reaches the target state, fails or the timeout expires.
+     * @param vmId the virtual machine to watch
+     * @param targetState the state to wait for
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @param callback receives the outcome
+     */
+    public void watch(@Nonnull String vmId, @Nonnull VmState targetState, long timeout, @Nonnull TimeUnit unit, @Nonnull Callback callback) {
+        Watch watch = new Watch(vmId, targetState, System.currentTimeMillis() + unit.toMillis(timeout), callback);
+
+        synchronized( this ) {
+            if( !closed ) {
+                watches.add(watch);
+                // a new machine is usually still being created, so it is worth checking soon
+                if( next == null && !polling ) {
+                    next = poller.schedule(poll, fastInterval, TimeUnit.MILLISECONDS);
+                }
+                else if( next != null && next.getDelay(TimeUnit.MILLISECONDS) > fastInterval && next.cancel(false) ) {
+                    next = poller.schedule(poll, fastInterval, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        notifyClosed(watch);
+    }
+
+    /**
+     * @return the number of virtual machines being watched
+     */
+    public synchronized int getWatchCount() {
+        return watches.size();
+    }
+
+    /**
+     * Stops polling for good and fails every pending watch. Called when the provider is closed; a poll that finds
+     * the provider closed does the same.
+     */
+    void close() {
+        List<Watch> pending;
+        synchronized( this ) {
+            closed = true;
+            if( next != null ) {
+                next.cancel(false);
+                next = null;
+            }
+            pending = new ArrayList<Watch>(watches);
+            watches.clear();
+        }
+        for( Watch watch : pending ) {
+            notifyClosed(watch);
+        }
+    }
+
+    private void poll() {
+        if( provider.isClosed() ) {
+            close();
+            return;
+        }
+        List<Watch> current;
+        synchronized( this ) {
+            next = null;
+            polling = true;
+            current = new ArrayList<Watch>(watches);
+        }
+        List<Watch> done = new ArrayList<Watch>();
+        long delay = interval;
+        try {
+            Map<String, VmState> states = null;
+            try {
+                states = listStates();
+            }
+            catch( Throwable t ) {
+                logger.warn("Unable to list server states, retrying at the next poll: " + t.getMessage());
+            }
+            long now = System.currentTimeMillis();
+            for( Watch watch : current ) {
+                if( states != null ) {
+                    VmState state = states.get(watch.vmId);
+                    if( state == null && watch.lastState != null ) {
+                        // deleted servers eventually drop out of the listing
+                        state = VmState.TERMINATED;
+                    }
+                    if( state != null ) {
+                        watch.lastState = state;
+                    }
+                    else {
+                        watch.misses++;
+                    }
+                }
+                if( watch.lastState == watch.targetState || isFailed(watch) || now >= watch.deadline ) {
+                    done.add(watch);
+                    continue;
+                }
+                if( watch.lastState == VmState.PENDING ) {
+                    delay = fastInterval;
+                }
+                else if( watch.lastState == null ) {
+                    // not listed yet: soon after a launch, or an id that will never show up
+                    delay = Math.min(delay, Math.min(interval, fastInterval << Math.min(watch.misses, 16)));
+                }
+                delay = Math.min(delay, Math.max(fastInterval, watch.deadline - now));
+            }
+        }
+        finally {
+            synchronized( this ) {
+                // watches failed by close() meanwhile are no longer listed and must not be notified twice
+                done.retainAll(watches);
+                watches.removeAll(done);
+                polling = false;
+                if( !closed && !watches.isEmpty() ) {
+                    next = poller.schedule(poll, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        for( Watch watch : done ) {
+            notify(watch);
+        }
+    }
+
+    private @Nonnull Map<String, VmState> listStates() throws CloudException, InternalException {
+        final Map<String, VmState> states = new HashMap<String, VmState>();
+        Projection previous = Projection.set(BrightBoxVmSupport.STATUS_FIELDS);
+        try {
+            JsonStreams.forEach(provider.getCloudApiService().streamServers(), Server.class, new JsonStreams.ElementHandler<Server>() {
+                @Override public void handle(@Nonnull Server server) throws CloudException, InternalException {
+                    VmState state = support.toVmState(server.getStatus());
+                    if( state != null ) {
+                        states.put(server.getId(), state);
+                    }
+                }
+            });
+        }
+        finally {
+            Projection.set(previous);
+        }
+        return states;
+    }
+
+    static private boolean isFailed(@Nonnull Watch watch) {
+        return ( watch.lastState == VmState.TERMINATED || watch.lastState == VmState.ERROR ) && watch.lastState != watch.targetState;
+    }
+
+    private void notifyClosed(@Nonnull Watch watch) {
+        try {
+            watch.callback.watchFailed(watch.vmId, watch.lastState, "Stopped watching " + watch.vmId + ": the provider was closed");
+        }
+        catch( Throwable t ) {
+            logger.error("Callback for " + watch.vmId + " failed: " + t.getMessage(), t);
+        }
+    }
+
+    private void notify(@Nonnull Watch watch) {
+        try {
+            if( watch.lastState == watch.targetState ) {
+                watch.callback.stateReached(watch.vmId, watch.targetState);
+            }
+            else if( isFailed(watch) ) {
+                watch.callback.watchFailed(watch.vmId, watch.lastState, "Virtual machine " + watch.vmId + " is " + watch.lastState);
+            }
+            else {
+                watch.callback.watchFailed(watch.vmId, watch.lastState, "Timed out waiting for " + watch.vmId + " to become " + watch.targetState);
+            }
+        }
+        catch( Throwable t ) {
+            logger.error("Callback for " + watch.vmId + " failed: " + t.getMessage(), t);
+        }
+    }
+}
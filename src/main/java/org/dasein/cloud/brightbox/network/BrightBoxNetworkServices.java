@@ -34,18 +34,43 @@ public class BrightBoxNetworkServices extends AbstractNetworkServices<BrightBoxC
         super(brightBoxCloud);
     }
 
+    private transient volatile BrightBoxLoadBalancerSupport loadBalancerSupport;
+    private transient volatile BrightBoxIpAddressSupport    ipAddressSupport;
+    private transient volatile BrightBoxFirewallSupport     firewallSupport;
+
     @Override
     public @Nullable LoadBalancerSupport getLoadBalancerSupport() {
-        return new BrightBoxLoadBalancerSupport(getProvider());
+        if( loadBalancerSupport == null ) {
+            synchronized( this ) {
+                if( loadBalancerSupport == null ) {
+                    loadBalancerSupport = new BrightBoxLoadBalancerSupport(getProvider());
+                }
+            }
+        }
+        return loadBalancerSupport;
     }
 
     @Override
     public @Nullable IpAddressSupport getIpAddressSupport() {
-        return new BrightBoxIpAddressSupport(getProvider());
+        if( ipAddressSupport == null ) {
+            synchronized( this ) {
+                if( ipAddressSupport == null ) {
+                    ipAddressSupport = new BrightBoxIpAddressSupport(getProvider());
+                }
+            }
+        }
+        return ipAddressSupport;
     }
 
     @Override
     public @Nullable FirewallSupport getFirewallSupport() {
-        return new BrightBoxFirewallSupport(getProvider());
+        if( firewallSupport == null ) {
+            synchronized( this ) {
+                if( firewallSupport == null ) {
+                    firewallSupport = new BrightBoxFirewallSupport(getProvider());
+                }
+            }
+        }
+        return firewallSupport;
     }
 }
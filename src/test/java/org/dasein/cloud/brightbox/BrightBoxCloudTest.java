@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox;
+
+import org.dasein.cloud.Cloud;
+import org.dasein.cloud.CloudException;
+import org.dasein.cloud.ProviderContext;
+import org.dasein.cloud.brightbox.api.CloudApiService;
+import org.dasein.cloud.brightbox.stub.StubBrightBoxServer;
+import org.dasein.cloud.brightbox.stub.StubData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Calls the API through a provider connected to a {@link StubBrightBoxServer}, injecting the errors the client chain
+ * is expected to recover from.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class BrightBoxCloudTest {
+    private StubBrightBoxServer server;
+    private BrightBoxCloud      provider;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubBrightBoxServer(0, 0L);
+        server.start();
+        Cloud cloud = Cloud.register("Brightbox", "Brightbox", server.getEndpoint(), BrightBoxCloud.class);
+        ProviderContext ctx = cloud.createContext(StubData.ACCOUNT, StubBrightBoxServer.REGION_ID,
+                new ProviderContext.Value<byte[][]>("apiKey", new byte[][] {
+                        StubBrightBoxServer.API_KEY_SHARED.getBytes("utf-8"), StubBrightBoxServer.API_KEY_SECRET.getBytes("utf-8")
+                }));
+        provider = ( BrightBoxCloud ) ctx.connect();
+    }
+
+    @After
+    public void tearDown() {
+        if( provider != null ) {
+            provider.close();
+        }
+        if( server != null ) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void retriesAServiceUnavailableAnswer() throws Exception {
+        CloudApiService service = provider.getCloudApiService();
+        long requests = server.getRequestCount();
+
+        server.failNext(503);
+        assertFalse(service.listZones().isEmpty());
+        // the injected 503, then the retry made after its one second Retry-After
+        assertEquals(requests + 2, server.getRequestCount());
+        assertEquals(1, server.getInjectedErrorCount());
+        assertEquals(1, provider.getApiMetrics().getRetries());
+    }
+
+    @Test
+    public void doesNotRetryNotImplemented() throws Exception {
+        CloudApiService service = provider.getCloudApiService();
+        long requests = server.getRequestCount();
+
+        server.failNext(501);
+        try {
+            service.listZones();
+            fail("A 501 answer was not reported");
+        }
+        catch( CloudException expected ) {
+            // a retry would get the same answer
+        }
+        assertEquals(requests + 1, server.getRequestCount());
+        assertEquals(0, provider.getApiMetrics().getRetries());
+        assertFalse(service.listZones().isEmpty());
+    }
+
+    @Test
+    public void replaysACallRejectedForItsToken() throws Exception {
+        CloudApiService service = provider.getCloudApiService();
+        long requests = server.getRequestCount();
+
+        server.revokeTokens();
+        assertFalse(service.listZones().isEmpty());
+        // the 401, the token request and the replayed call
+        assertEquals(requests + 3, server.getRequestCount());
+        assertEquals(0, provider.getApiMetrics().getRetries());
+    }
+}
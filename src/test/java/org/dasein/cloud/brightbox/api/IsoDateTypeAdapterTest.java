@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.bind.DateTypeAdapter;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks {@link IsoDateTypeAdapter#parse(String)} against the timestamp forms of the Brightbox API, and that any other
+ * form is handed to Gson's {@link DateTypeAdapter}.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class IsoDateTypeAdapterTest {
+    static private final long NOT_ISO_8601 = Long.MIN_VALUE;
+
+    static private long utc(int year, int month, int day, int hour, int minute, int second, int millis) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTimeInMillis();
+    }
+
+    static private Date read(@Nonnull String value) throws Exception {
+        return new IsoDateTypeAdapter().fromJsonTree(new JsonPrimitive(value));
+    }
+
+    /**
+     * Checks that the adapter reads the value as Gson's own adapter does, failing in the same way if that cannot read it.
+     */
+    static private void assertSameAsFallback(@Nonnull String value) throws Exception {
+        Date expected;
+        try {
+            expected = new DateTypeAdapter().fromJsonTree(new JsonPrimitive(value));
+        }
+        catch( JsonSyntaxException e ) {
+            try {
+                read(value);
+                fail(value + " was read although DateTypeAdapter rejects it");
+            }
+            catch( JsonSyntaxException ignore ) { }
+            return;
+        }
+        assertNotNull(expected);
+        assertEquals(value, expected, read(value));
+    }
+
+    @Test
+    public void parsesUtc() {
+        long expected = utc(2015, 2, 10, 12, 34, 56, 0);
+
+        assertEquals(expected, IsoDateTypeAdapter.parse("2015-02-10T12:34:56Z"));
+        assertEquals(expected, IsoDateTypeAdapter.parse("2015-02-10t12:34:56z"));
+        assertEquals(expected, IsoDateTypeAdapter.parse("2015-02-10 12:34:56Z"));
+        assertEquals(expected, IsoDateTypeAdapter.parse("2015-02-10T12:34:56+00:00"));
+        assertEquals(expected, IsoDateTypeAdapter.parse("2015-02-10T12:34:56-00:00"));
+    }
+
+    @Test
+    public void parsesOffsets() {
+        assertEquals(utc(2015, 2, 10, 11, 34, 56, 0), IsoDateTypeAdapter.parse("2015-02-10T12:34:56+01:00"));
+        assertEquals(utc(2015, 2, 10, 18, 4, 56, 0), IsoDateTypeAdapter.parse("2015-02-10T12:34:56-05:30"));
+        assertEquals(utc(2015, 2, 10, 18, 4, 56, 0), IsoDateTypeAdapter.parse("2015-02-10T12:34:56-0530"));
+        assertEquals(utc(2015, 2, 10, 11, 34, 56, 0), IsoDateTypeAdapter.parse("2015-02-10T12:34:56+01"));
+        // the offset moves the instant across midnight, the month and the year
+        assertEquals(utc(2014, 12, 31, 23, 30, 0, 0), IsoDateTypeAdapter.parse("2015-01-01T09:30:00+10:00"));
+        assertEquals(utc(2016, 3, 1, 4, 0, 0, 0), IsoDateTypeAdapter.parse("2016-02-29T23:00:00-05:00"));
+    }
+
+    @Test
+    public void parsesFractionalSeconds() {
+        String[] fractions = { "", ".1", ".12", ".123", ".1234", ".12345", ".123456", ".1234567", ".12345678", ".123456789" };
+        int[] millis = { 0, 100, 120, 123, 123, 123, 123, 123, 123, 123 };
+
+        for( int i = 0; i < fractions.length; i++ ) {
+            assertEquals(fractions[i], utc(2015, 2, 10, 12, 34, 56, millis[i]), IsoDateTypeAdapter.parse("2015-02-10T12:34:56" + fractions[i] + "Z"));
+            assertEquals(fractions[i], utc(2015, 2, 10, 11, 34, 56, millis[i]), IsoDateTypeAdapter.parse("2015-02-10T12:34:56" + fractions[i] + "+01:00"));
+        }
+        assertEquals(utc(2015, 2, 10, 12, 34, 56, 500), IsoDateTypeAdapter.parse("2015-02-10T12:34:56,5Z"));
+        assertEquals(NOT_ISO_8601, IsoDateTypeAdapter.parse("2015-02-10T12:34:56.Z"));
+    }
+
+    @Test
+    public void rejectsOtherForms() {
+        String[] values = {
+                "2015-02-10", "2015-02-10T12:34", "2015-02-10T12:34:56", "2015-02-10T12:34:56.123",
+                "2015-02-10T12:34:56+1:00", "2015-02-10T12:34:56+01:0", "2015-02-10T12:34:56+24:00", "2015-02-10T12:34:56+01:60",
+                "2015-02-10T12:34:56Zjunk", "2015-02-10X12:34:56Z", "2015/02/10T12:34:56Z", "2015-13-10T12:34:56Z",
+                "2015-02-29T12:34:56Z", "2015-04-31T12:34:56Z", "2015-02-10T24:00:00Z", "2015-02-10T12:60:00Z",
+                "2015-02-10T12:34:60Z", "2015-0a-10T12:34:56Z", "Feb 10, 2015 12:34:56 PM"
+        };
+
+        for( String value : values ) {
+            assertEquals(value, NOT_ISO_8601, IsoDateTypeAdapter.parse(value));
+        }
+        assertEquals(utc(2016, 2, 29, 0, 0, 0, 0), IsoDateTypeAdapter.parse("2016-02-29T00:00:00Z"));
+        assertEquals(utc(2000, 2, 29, 0, 0, 0, 0), IsoDateTypeAdapter.parse("2000-02-29T00:00:00Z"));
+        assertEquals(NOT_ISO_8601, IsoDateTypeAdapter.parse("1900-02-29T00:00:00Z"));
+    }
+
+    @Test
+    public void readsIsoTimestampsDirectly() throws Exception {
+        assertEquals(new Date(utc(2015, 2, 10, 11, 34, 56, 123)), read("2015-02-10T12:34:56.123456+01:00"));
+        assertNull(new IsoDateTypeAdapter().fromJson("null"));
+    }
+
+    @Test
+    public void readsDateOnlyValuesThroughTheFallback() throws Exception {
+        assertEquals(NOT_ISO_8601, IsoDateTypeAdapter.parse("2015-02-10"));
+        assertSameAsFallback("2015-02-10");
+        assertSameAsFallback("2016-02-29");
+    }
+
+    @Test
+    public void readsOtherFormsThroughTheFallback() throws Exception {
+        Date date = new Date(utc(2015, 2, 10, 12, 34, 56, 0));
+        String value = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US).format(date);
+
+        assertEquals(NOT_ISO_8601, IsoDateTypeAdapter.parse(value));
+        assertEquals(date, read(value));
+    }
+
+    @Test( expected = JsonSyntaxException.class )
+    public void rejectsMalformedValuesThroughTheFallback() throws Exception {
+        read("not a date");
+    }
+}
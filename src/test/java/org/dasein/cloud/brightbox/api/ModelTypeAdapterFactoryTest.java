@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.api;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.dasein.cloud.brightbox.api.model.Account;
+import org.dasein.cloud.brightbox.api.model.CloudIp;
+import org.dasein.cloud.brightbox.api.model.DatabaseServer;
+import org.dasein.cloud.brightbox.api.model.DatabaseServerType;
+import org.dasein.cloud.brightbox.api.model.FirewallPolicy;
+import org.dasein.cloud.brightbox.api.model.FirewallRule;
+import org.dasein.cloud.brightbox.api.model.Image;
+import org.dasein.cloud.brightbox.api.model.Interface;
+import org.dasein.cloud.brightbox.api.model.LoadBalancer;
+import org.dasein.cloud.brightbox.api.model.LoadBalancerHealthcheck;
+import org.dasein.cloud.brightbox.api.model.LoadBalancerListener;
+import org.dasein.cloud.brightbox.api.model.PortTranslator;
+import org.dasein.cloud.brightbox.api.model.Server;
+import org.dasein.cloud.brightbox.api.model.ServerGroup;
+import org.dasein.cloud.brightbox.api.model.ServerType;
+import org.dasein.cloud.brightbox.api.model.Token;
+import org.dasein.cloud.brightbox.api.model.Zone;
+import org.dasein.cloud.brightbox.stub.StubData;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes payloads in the shape of the Brightbox API through Gson's reflective binding and through the adapters of
+ * {@link ModelTypeAdapterFactory}, and checks that both produce the same objects. Every model class with an adapter
+ * is decoded from the {@link StubData} fixtures, either as a resource of its own or as the nested objects of one;
+ * the few the stub does not serve are decoded from literal payloads. The objects are compared by encoding them back
+ * to JSON with the reflective binding, as the model classes do not implement <code>equals</code>.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class ModelTypeAdapterFactoryTest {
+    static private final Gson reflective = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .registerTypeAdapter(Date.class, new IsoDateTypeAdapter())
+            .create();
+
+    static private final Gson streaming = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .registerTypeAdapter(Date.class, new IsoDateTypeAdapter())
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+
+    private StubData data;
+
+    @Before
+    public void setUp() {
+        data = new StubData("http://127.0.0.1:8080", 0L);
+        data.populate(12, 30, 5, 9, 3);
+        data.createCloudIp(new JsonParser().parse("{\"name\":\"translated\",\"port_translators\":["
+                + "{\"incoming\":443,\"outgoing\":8443,\"protocol\":\"tcp\"},{\"incoming\":53,\"outgoing\":5353,\"protocol\":\"udp\"}]}").getAsJsonObject());
+    }
+
+    /**
+     * Decodes the payload both ways and checks the results are the same.
+     * @return the object decoded by the factory's adapters
+     */
+    static private <T> T assertSameDecoding(@Nonnull JsonElement json, @Nonnull Type type) {
+        T expected = reflective.fromJson(json, type);
+        T actual = streaming.fromJson(json, type);
+
+        assertEquals(reflective.toJsonTree(expected), reflective.toJsonTree(actual));
+        return actual;
+    }
+
+    /**
+     * Decodes a collection both ways and checks the results are the same and not empty.
+     */
+    static private void assertSameNonEmptyList(@Nonnull JsonArray json, @Nonnull Type type) {
+        List<?> decoded = assertSameDecoding(json, type);
+
+        assertFalse(decoded.isEmpty());
+    }
+
+    /**
+     * @return the values of the named field of every resource, the elements of array values listed one by one
+     */
+    static private @Nonnull JsonArray nested(@Nonnull JsonArray resources, @Nonnull String field) {
+        JsonArray result = new JsonArray();
+
+        for( JsonElement resource : resources ) {
+            JsonElement value = resource.getAsJsonObject().get(field);
+            if( value == null || value.isJsonNull() ) {
+                continue;
+            }
+            if( value.isJsonArray() ) {
+                for( JsonElement element : value.getAsJsonArray() ) {
+                    result.add(element);
+                }
+            }
+            else {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void decodesCollectionsAsReflectionDoes() {
+        assertSameNonEmptyList(data.listZones(), new TypeToken<List<Zone>>() {}.getType());
+        assertSameNonEmptyList(data.listServerTypes(), new TypeToken<List<ServerType>>() {}.getType());
+        assertSameNonEmptyList(data.listImages(), new TypeToken<List<Image>>() {}.getType());
+        assertSameNonEmptyList(data.listServers(), new TypeToken<List<Server>>() {}.getType());
+        assertSameNonEmptyList(data.listServerGroups(), new TypeToken<List<ServerGroup>>() {}.getType());
+        assertSameNonEmptyList(data.listFirewallPolicies(), new TypeToken<List<FirewallPolicy>>() {}.getType());
+        assertSameNonEmptyList(data.listCloudIps(), new TypeToken<List<CloudIp>>() {}.getType());
+        assertSameNonEmptyList(data.listLoadBalancers(), new TypeToken<List<LoadBalancer>>() {}.getType());
+    }
+
+    @Test
+    public void decodesNestedModelsAsReflectionDoes() {
+        JsonArray servers = data.listServers();
+        JsonArray loadBalancers = data.listLoadBalancers();
+
+        assertSameNonEmptyList(nested(servers, "account"), new TypeToken<List<Account>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "image"), new TypeToken<List<Image>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "server_type"), new TypeToken<List<ServerType>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "zone"), new TypeToken<List<Zone>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "interfaces"), new TypeToken<List<Interface>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "cloud_ips"), new TypeToken<List<CloudIp>>() {}.getType());
+        assertSameNonEmptyList(nested(servers, "server_groups"), new TypeToken<List<ServerGroup>>() {}.getType());
+        assertSameNonEmptyList(nested(data.listServerGroups(), "firewall_policy"), new TypeToken<List<FirewallPolicy>>() {}.getType());
+        assertSameNonEmptyList(nested(data.listFirewallPolicies(), "rules"), new TypeToken<List<FirewallRule>>() {}.getType());
+        assertSameNonEmptyList(nested(data.listCloudIps(), "port_translators"), new TypeToken<List<PortTranslator>>() {}.getType());
+        assertSameNonEmptyList(nested(loadBalancers, "listeners"), new TypeToken<List<LoadBalancerListener>>() {}.getType());
+        assertSameNonEmptyList(nested(loadBalancers, "healthcheck"), new TypeToken<List<LoadBalancerHealthcheck>>() {}.getType());
+        assertSameNonEmptyList(nested(loadBalancers, "nodes"), new TypeToken<List<Server>>() {}.getType());
+    }
+
+    @Test
+    public void decodesSingleResourcesAsReflectionDoes() {
+        String serverId = data.listServers().get(0).getAsJsonObject().get("id").getAsString();
+        JsonObject policy = data.listFirewallPolicies().get(0).getAsJsonObject();
+        String ruleId = policy.getAsJsonArray("rules").get(0).getAsJsonObject().get("id").getAsString();
+
+        assertSameDecoding(data.getServer(serverId), Server.class);
+        assertSameDecoding(data.getImage(data.listImages().get(0).getAsJsonObject().get("id").getAsString()), Image.class);
+        assertSameDecoding(data.getServerGroup(data.listServerGroups().get(0).getAsJsonObject().get("id").getAsString()), ServerGroup.class);
+        assertSameDecoding(data.getFirewallPolicy(policy.get("id").getAsString()), FirewallPolicy.class);
+        assertSameDecoding(data.getFirewallRule(ruleId), FirewallRule.class);
+        assertSameDecoding(data.getCloudIp(data.listCloudIps().get(0).getAsJsonObject().get("id").getAsString()), CloudIp.class);
+        assertSameDecoding(data.getLoadBalancer(data.listLoadBalancers().get(0).getAsJsonObject().get("id").getAsString()), LoadBalancer.class);
+    }
+
+    @Test
+    public void decodesSerializedNameFields() {
+        JsonObject account = new JsonParser().parse("{\"id\":\"acc-12345\",\"resource_type\":\"account\",\"name\":\"Example\","
+                + "\"address_1\":\"1 Example Street\",\"address_2\":\"Floor 2\",\"city\":\"Leeds\",\"country_code\":\"GB\"}").getAsJsonObject();
+
+        Account decoded = assertSameDecoding(account, Account.class);
+        assertEquals("1 Example Street", decoded.getAddress1());
+        assertEquals("Floor 2", decoded.getAddress2());
+
+        boolean anyPublic = false;
+        List<Image> images = assertSameDecoding(data.listImages(), new TypeToken<List<Image>>() {}.getType());
+        for( Image image : images ) {
+            anyPublic |= image.isPublic();
+        }
+        assertTrue(anyPublic);
+
+        boolean anyDefault = false;
+        List<ServerGroup> groups = assertSameDecoding(data.listServerGroups(), new TypeToken<List<ServerGroup>>() {}.getType());
+        for( ServerGroup group : groups ) {
+            anyDefault |= group.isDefault();
+        }
+        assertTrue(anyDefault);
+
+        boolean anyInterface = false;
+        List<CloudIp> cloudIps = assertSameDecoding(data.listCloudIps(), new TypeToken<List<CloudIp>>() {}.getType());
+        for( CloudIp cloudIp : cloudIps ) {
+            anyInterface |= ( cloudIp.getInterface() != null );
+        }
+        assertTrue(anyInterface);
+    }
+
+    @Test
+    public void skipsUnknownFieldsAndKeepsNulls() {
+        JsonObject server = data.listServers().get(0).getAsJsonObject();
+        server.add("name", JsonNull.INSTANCE);
+        server.add("created_at", JsonNull.INSTANCE);
+        server.add("image", JsonNull.INSTANCE);
+        server.add("cloud_ips", JsonNull.INSTANCE);
+        server.add("locked", JsonNull.INSTANCE);
+        server.add("unknown_field", JsonNull.INSTANCE);
+        server.add("future_field", new JsonParser().parse("{\"nested\":[1,{\"deeper\":null},\"text\",true]}"));
+        server.addProperty("future_count", 42);
+
+        Server decoded = assertSameDecoding(server, Server.class);
+        assertNull(decoded.getName());
+        assertNull(decoded.getImage());
+
+        JsonArray servers = new JsonArray();
+        servers.add(JsonNull.INSTANCE);
+        servers.add(server);
+        assertSameDecoding(servers, new TypeToken<List<Server>>() {}.getType());
+
+        JsonObject account = new JsonParser().parse("{\"id\":\"acc-12345\",\"address_1\":null,\"ram_limit\":1024,"
+                + "\"valid_credit_card\":true,\"unknown\":{\"a\":[]}}").getAsJsonObject();
+        assertSameDecoding(account, Account.class);
+    }
+
+    @Test
+    public void decodesResourcesTheStubDoesNotServe() {
+        JsonObject token = new JsonParser().parse("{\"access_token\":\"abc123\",\"token_type\":\"Bearer\",\"expires_in\":7200,"
+                + "\"refresh_token\":null}").getAsJsonObject();
+        Token decoded = assertSameDecoding(token, Token.class);
+        assertEquals("abc123", decoded.getAccessToken());
+
+        JsonObject type = new JsonParser().parse("{\"id\":\"dbt-12345\",\"url\":\"https://api.gb1.brightbox.com/1.0/database_types/dbt-12345\","
+                + "\"name\":\"Small\",\"description\":null,\"ram\":2048,\"disk_size\":20480,\"default\":true}").getAsJsonObject();
+        assertSameDecoding(type, DatabaseServerType.class);
+
+        JsonObject database = new JsonParser().parse("{\"id\":\"dbs-12345\",\"name\":\"db\",\"status\":\"active\","
+                + "\"database_engine\":\"mysql\",\"database_version\":\"5.5\",\"admin_username\":\"admin\",\"admin_password\":null,"
+                + "\"created_at\":\"2015-02-10T12:34:56Z\",\"updated_at\":\"2015-02-10T13:34:56Z\",\"deleted_at\":null,"
+                + "\"allow_access\":[\"srv-12345\",\"grp-12345\"],\"locked\":false,\"maintenance_weekday\":0,"
+                + "\"database_server_type\":" + type + ",\"cloud_ips\":[],\"zone\":{\"id\":\"zon-12345\",\"handle\":\"gb1-a\"}}").getAsJsonObject();
+        assertSameDecoding(database, DatabaseServer.class);
+    }
+
+    @Test
+    public void decodesWithinADecodePoolAsReflectionDoes() {
+        DecodePool pool = DecodePool.open();
+        try {
+            assertSameDecoding(data.listServers(), new TypeToken<List<Server>>() {}.getType());
+            assertSameDecoding(data.listImages(), new TypeToken<List<Image>>() {}.getType());
+        }
+        finally {
+            DecodePool.close(pool);
+        }
+    }
+
+    @Test
+    public void keepsFullImagesWhoseAncestorAppearsFirst() {
+        JsonArray images = data.listImages();
+        JsonObject last = images.get(images.size() - 1).getAsJsonObject();
+        JsonObject ancestor = new JsonObject();
+
+        for( String field : new String[] { "id", "resource_type", "url", "name" } ) {
+            ancestor.add(field, last.get(field));
+        }
+        images.get(0).getAsJsonObject().add("ancestor", ancestor);
+
+        DecodePool pool = DecodePool.open();
+        try {
+            List<Image> decoded = assertSameDecoding(images, new TypeToken<List<Image>>() {}.getType());
+            Image full = decoded.get(decoded.size() - 1);
+
+            assertEquals(last.get("id").getAsString(), decoded.get(0).getAncestor().getId());
+            assertNull(decoded.get(0).getAncestor().getDiskSize());
+            assertEquals(Long.valueOf(1294L), full.getDiskSize());
+            assertEquals(last.get("owner").getAsString(), full.getOwner());
+        }
+        finally {
+            DecodePool.close(pool);
+        }
+    }
+}
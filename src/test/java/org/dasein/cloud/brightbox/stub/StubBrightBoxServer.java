@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.stub;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process stand-in for the Brightbox API, serving the token, zone, server type, image, server, server group,
+ * firewall, cloud IP and load balancer routes used by this provider from {@link StubData}. It lets load tests,
+ * benchmarks and the integration suite run without an account or network access.
+ * <p>Run it from the test classpath with <code>key=value</code> arguments; it prints the system properties that
+ * point the integration suite at it. The supported options are:</p>
+ * <ul>
+ *     <li>port - the port to listen on, 0 for any free port (default 0)</li>
+ *     <li>latency - milliseconds added to every response (default 0)</li>
+ *     <li>jitter - up to this many further milliseconds added at random (default 0)</li>
+ *     <li>errorRate - fraction of API calls answered with an injected error (default 0)</li>
+ *     <li>errorStatus - the status of injected errors (default 503)</li>
+ *     <li>images, servers, serverGroups, cloudIps, loadBalancers - resources generated at startup</li>
+ *     <li>tokenLifetime - seconds an issued token stays valid (default 7200)</li>
+ *     <li>activationDelay - milliseconds a new server stays in the creating state (default 2000)</li>
+ * </ul>
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class StubBrightBoxServer {
+    static public final String API_KEY_SHARED = "cli-stub1";
+    static public final String API_KEY_SECRET = "stub-secret";
+    static public final String REGION_ID      = "gb1";
+
+    static private final Gson gson = new Gson();
+
+    private final HttpServer        server;
+    private final ExecutorService   executor;
+    private final StubData          data;
+    private final Map<String, Long> tokens   = new ConcurrentHashMap<String, Long>();
+    private final AtomicLong        requests = new AtomicLong();
+    private final AtomicLong        injectedErrors = new AtomicLong();
+    private final Random            random   = new Random();
+    private final Queue<Integer>    scriptedErrors = new ConcurrentLinkedQueue<Integer>();
+
+    private volatile long   latency       = 0;
+    private volatile long   jitter        = 0;
+    private volatile double errorRate     = 0;
+    private volatile int    errorStatus   = 503;
+    private volatile long   tokenLifetime = 7200;
+
+    /**
+     * Binds the server to the loopback interface; it serves nothing until {@link #start()} is called.
+     * @param port the port to listen on, 0 for any free port
+     * @param activationDelay milliseconds a new server stays in the creating state
+     * @throws IOException the port could not be bound
+     */
+    public StubBrightBoxServer(int port, long activationDelay) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        data = new StubData(getEndpoint(), activationDelay);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    StubBrightBoxServer.this.handle(exchange);
+                }
+                finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public @Nonnull String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public @Nonnull StubData getData() {
+        return data;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getInjectedErrorCount() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @param latency milliseconds added to every response
+     * @param jitter up to this many further milliseconds added at random
+     */
+    public void setLatency(long latency, long jitter) {
+        this.latency = Math.max(0, latency);
+        this.jitter = Math.max(0, jitter);
+    }
+
+    /**
+     * @param errorRate fraction, between 0 and 1, of API calls answered with an injected error
+     * @param errorStatus the HTTP status of injected errors
+     */
+    public void setErrors(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Answers the next API call that carries a valid token with an injected error, whatever the error rate.
+     * Calls are queued, so a status passed twice fails the next two calls.
+     * @param errorStatus the HTTP status of the injected error
+     */
+    public void failNext(int errorStatus) {
+        scriptedErrors.add(errorStatus);
+    }
+
+    /**
+     * Invalidates every token issued so far, so that the next API call is answered with 401 until a new token is fetched.
+     */
+    public void revokeTokens() {
+        tokens.clear();
+    }
+
+    /**
+     * @param seconds seconds an issued token stays valid; tokens already issued keep their lifetime
+     */
+    public void setTokenLifetime(long seconds) {
+        this.tokenLifetime = seconds;
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(@Nonnull HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        byte[] body = readBody(exchange);
+        delay();
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if( "/token".equals(path) ) {
+            if( !"POST".equals(method) ) {
+                sendError(exchange, 405, "method_not_allowed", method + " " + path);
+                return;
+            }
+            String token = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            long lifetime = tokenLifetime;
+            tokens.put(token, System.currentTimeMillis() + lifetime * 1000L);
+            JsonObject json = new JsonObject();
+            json.addProperty("access_token", token);
+            json.addProperty("token_type", "Bearer");
+            json.addProperty("expires_in", lifetime);
+            send(exchange, 200, json, null);
+            return;
+        }
+        if( !isAuthorized(exchange.getRequestHeaders().getFirst("Authorization")) ) {
+            sendError(exchange, 401, "unauthorized", "Missing, invalid or expired access token");
+            return;
+        }
+        Integer scripted = scriptedErrors.poll();
+        double rate = errorRate;
+        if( scripted != null || (rate > 0 && random.nextDouble() < rate) ) {
+            injectedErrors.incrementAndGet();
+            int status = ( scripted != null ? scripted : errorStatus );
+            if( status == 429 || status == 503 ) {
+                exchange.getResponseHeaders().add("Retry-After", "1");
+            }
+            sendError(exchange, status, "injected_error", "Injected error for " + method + " " + path);
+            return;
+        }
+        String[] parts = path.split("/");
+        // "", "1.0", collection[, id[, action]]
+        if( parts.length < 3 || parts.length > 5 || !"1.0".equals(parts[1]) ) {
+            sendError(exchange, 404, "not_found", "No route for " + method + " " + path);
+            return;
+        }
+        String collection = parts[2];
+        String id = ( parts.length > 3 ? parts[3] : null );
+        String action = ( parts.length > 4 ? parts[4] : null );
+
+        if( "GET".equals(method) && action == null ) {
+            String etag = "\"" + data.getVersion() + "\"";
+            if( etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")) ) {
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            try {
+                // read under the same version, so that the tag never labels newer content than it names
+                JsonElement result;
+                synchronized( data ) {
+                    result = route(method, collection, id, null, body, exchange);
+                    etag = "\"" + data.getVersion() + "\"";
+                }
+                send(exchange, 200, result, etag);
+            }
+            catch( StubData.NotFoundException e ) {
+                sendError(exchange, 404, "not_found", e.getMessage());
+            }
+            return;
+        }
+        try {
+            JsonElement result = route(method, collection, id, action, body, exchange);
+            send(exchange, "POST".equals(method) && id == null ? 201 : ( "DELETE".equals(method) ? 202 : 200 ), result, null);
+        }
+        catch( StubData.NotFoundException e ) {
+            sendError(exchange, 404, "not_found", e.getMessage());
+        }
+        catch( StubData.InvalidRequestException e ) {
+            sendError(exchange, 422, "invalid_request", e.getMessage());
+        }
+        catch( JsonParseException e ) {
+            sendError(exchange, 400, "invalid_json", e.getMessage());
+        }
+        catch( IllegalStateException e ) {
+            sendError(exchange, 400, "invalid_json", e.getMessage());
+        }
+    }
+
+    private @Nonnull JsonElement route(@Nonnull String method, @Nonnull String collection, @Nullable String id, @Nullable String action, @Nonnull byte[] body, @Nonnull HttpExchange exchange) {
+        boolean get = "GET".equals(method);
+        boolean post = "POST".equals(method);
+        boolean put = "PUT".equals(method);
+        boolean delete = "DELETE".equals(method);
+
+        if( "zones".equals(collection) && get && id == null ) {
+            return data.listZones();
+        }
+        if( "server_types".equals(collection) && get && id == null ) {
+            return data.listServerTypes();
+        }
+        if( "database_types".equals(collection) && get && id == null ) {
+            return new JsonArray();
+        }
+        if( "images".equals(collection) && action == null ) {
+            if( get ) {
+                return ( id == null ? data.listImages() : data.getImage(id) );
+            }
+            if( delete && id != null ) {
+                return data.deleteImage(id);
+            }
+        }
+        if( "servers".equals(collection) ) {
+            if( id == null ) {
+                if( get ) {
+                    return data.listServers();
+                }
+                if( post ) {
+                    return data.createServer(parseObject(exchange, body));
+                }
+            }
+            else if( action == null ) {
+                if( get ) {
+                    return data.getServer(id);
+                }
+                if( put ) {
+                    return data.updateServer(id, parseObject(exchange, body));
+                }
+                if( delete ) {
+                    return data.deleteServer(id);
+                }
+            }
+            else if( post ) {
+                return data.serverAction(id, action);
+            }
+        }
+        if( "server_groups".equals(collection) ) {
+            if( id == null ) {
+                if( get ) {
+                    return data.listServerGroups();
+                }
+                if( post ) {
+                    return data.createServerGroup(parseObject(exchange, body));
+                }
+            }
+            else if( action == null ) {
+                if( get ) {
+                    return data.getServerGroup(id);
+                }
+                if( delete ) {
+                    return data.deleteServerGroup(id);
+                }
+            }
+            else if( post && ( "add_servers".equals(action) || "remove_servers".equals(action) ) ) {
+                return data.updateServerGroupMembers(id, getServerIds(parse(exchange, body)), "add_servers".equals(action));
+            }
+        }
+        if( "firewall_policies".equals(collection) ) {
+            if( id == null ) {
+                if( get ) {
+                    return data.listFirewallPolicies();
+                }
+                if( post ) {
+                    return data.createFirewallPolicy(parseObject(exchange, body));
+                }
+            }
+            else if( action == null ) {
+                if( get ) {
+                    return data.getFirewallPolicy(id);
+                }
+                if( put ) {
+                    return data.updateFirewallPolicy(id, parseObject(exchange, body));
+                }
+                if( delete ) {
+                    return data.deleteFirewallPolicy(id);
+                }
+            }
+            else if( post && "apply_to".equals(action) ) {
+                JsonElement group = parseObject(exchange, body).get("server_group");
+                return data.applyFirewallPolicy(id, group == null || group.isJsonNull() ? null : group.getAsString());
+            }
+        }
+        if( "firewall_rules".equals(collection) && action == null ) {
+            if( id == null && post ) {
+                return data.createFirewallRule(parseObject(exchange, body));
+            }
+            if( id != null && get ) {
+                return data.getFirewallRule(id);
+            }
+            if( id != null && put ) {
+                return data.updateFirewallRule(id, parseObject(exchange, body));
+            }
+            if( id != null && delete ) {
+                return data.deleteFirewallRule(id);
+            }
+        }
+        if( "cloud_ips".equals(collection) ) {
+            if( id == null ) {
+                if( get ) {
+                    return data.listCloudIps();
+                }
+                if( post ) {
+                    return data.createCloudIp(parseObject(exchange, body));
+                }
+            }
+            else if( action == null ) {
+                if( get ) {
+                    return data.getCloudIp(id);
+                }
+                if( put ) {
+                    return data.updateCloudIp(id, parseObject(exchange, body));
+                }
+                if( delete ) {
+                    return data.deleteCloudIp(id);
+                }
+            }
+            else if( post && "map".equals(action) ) {
+                JsonElement destination = parseObject(exchange, body).get("destination");
+                if( destination == null || destination.isJsonNull() ) {
+                    throw new StubData.InvalidRequestException("destination is required");
+                }
+                return data.mapCloudIp(id, destination.getAsString());
+            }
+            else if( post && "unmap".equals(action) ) {
+                return data.mapCloudIp(id, null);
+            }
+        }
+        if( "load_balancers".equals(collection) ) {
+            if( id == null ) {
+                if( get ) {
+                    return data.listLoadBalancers();
+                }
+                if( post ) {
+                    return data.createLoadBalancer(parseObject(exchange, body));
+                }
+            }
+            else if( action == null ) {
+                if( get ) {
+                    return data.getLoadBalancer(id);
+                }
+                if( put ) {
+                    return data.updateLoadBalancer(id, parseObject(exchange, body));
+                }
+                if( delete ) {
+                    return data.deleteLoadBalancer(id);
+                }
+            }
+            else if( post ) {
+                return data.loadBalancerAction(id, action, parseObject(exchange, body));
+            }
+        }
+        throw new StubData.NotFoundException(method + " /1.0/" + collection + ( id == null ? "" : "/" + id ) + ( action == null ? "" : "/" + action ));
+    }
+
+    private boolean isAuthorized(@Nullable String authorization) {
+        if( authorization == null || !authorization.startsWith("OAuth ") ) {
+            return false;
+        }
+        Long expiresAt = tokens.get(authorization.substring(6).trim());
+        return ( expiresAt != null && expiresAt > System.currentTimeMillis() );
+    }
+
+    private void delay() {
+        long millis = latency;
+        long extra = jitter;
+        if( extra > 0 ) {
+            millis += (long) (random.nextDouble() * extra);
+        }
+        if( millis > 0 ) {
+            try {
+                Thread.sleep(millis);
+            }
+            catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // request bodies
+
+    static private @Nonnull byte[] readBody(@Nonnull HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        int n;
+        while( (n = in.read(buffer)) >= 0 ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Parses a JSON or form encoded body. Repeated form fields, with or without a trailing [], become arrays.
+     */
+    static private @Nonnull JsonElement parse(@Nonnull HttpExchange exchange, @Nonnull byte[] body) {
+        String text;
+        try {
+            text = new String(body, "utf-8").trim();
+        }
+        catch( IOException e ) {
+            text = new String(body).trim();
+        }
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if( type != null && type.startsWith("application/x-www-form-urlencoded") ) {
+            return parseForm(text);
+        }
+        if( text.length() == 0 ) {
+            return new JsonObject();
+        }
+        return new JsonParser().parse(text);
+    }
+
+    static private @Nonnull JsonObject parseObject(@Nonnull HttpExchange exchange, @Nonnull byte[] body) {
+        JsonElement json = parse(exchange, body);
+        if( !json.isJsonObject() ) {
+            throw new StubData.InvalidRequestException("Expected a JSON object");
+        }
+        return json.getAsJsonObject();
+    }
+
+    static private @Nonnull JsonObject parseForm(@Nonnull String text) {
+        Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+        for( String pair : text.split("&") ) {
+            if( pair.length() == 0 ) {
+                continue;
+            }
+            int idx = pair.indexOf('=');
+            try {
+                String name = URLDecoder.decode(idx < 0 ? pair : pair.substring(0, idx), "utf-8");
+                String value = ( idx < 0 ? "" : URLDecoder.decode(pair.substring(idx + 1), "utf-8") );
+                if( name.endsWith("[]") ) {
+                    name = name.substring(0, name.length() - 2);
+                }
+                List<String> values = fields.get(name);
+                if( values == null ) {
+                    values = new ArrayList<String>();
+                    fields.put(name, values);
+                }
+                values.add(value);
+            }
+            catch( IOException e ) {
+                throw new StubData.InvalidRequestException("Invalid form field " + pair);
+            }
+        }
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, List<String>> field : fields.entrySet() ) {
+            if( field.getValue().size() == 1 ) {
+                json.addProperty(field.getKey(), field.getValue().get(0));
+            }
+            else {
+                JsonArray values = new JsonArray();
+                for( String value : field.getValue() ) {
+                    values.add(new JsonPrimitive(value));
+                }
+                json.add(field.getKey(), values);
+            }
+        }
+        return json;
+    }
+
+    /**
+     * Accepts <code>[{"server": id}, ...]</code>, <code>{"servers": [...]}</code> and form encoded ids.
+     */
+    static private @Nonnull List<String> getServerIds(@Nonnull JsonElement request) {
+        List<String> ids = new ArrayList<String>();
+        JsonElement servers = request;
+        if( request.isJsonObject() ) {
+            servers = request.getAsJsonObject().get("servers");
+        }
+        if( servers == null || servers.isJsonNull() ) {
+            return ids;
+        }
+        if( !servers.isJsonArray() ) {
+            JsonArray single = new JsonArray();
+            single.add(servers);
+            servers = single;
+        }
+        for( JsonElement server : servers.getAsJsonArray() ) {
+            if( server.isJsonObject() ) {
+                ids.add(server.getAsJsonObject().get("server").getAsString());
+            }
+            else {
+                ids.add(server.getAsString());
+            }
+        }
+        return ids;
+    }
+
+    // responses
+
+    static private void send(@Nonnull HttpExchange exchange, int status, @Nonnull JsonElement json, @Nullable String etag) throws IOException {
+        byte[] bytes = gson.toJson(json).getBytes("utf-8");
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        if( etag != null ) {
+            exchange.getResponseHeaders().add("ETag", etag);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.flush();
+    }
+
+    static private void sendError(@Nonnull HttpExchange exchange, int status, @Nonnull String name, @Nonnull String message) throws IOException {
+        JsonObject json = new JsonObject();
+        json.addProperty("error_name", name);
+        JsonArray errors = new JsonArray();
+        errors.add(new JsonPrimitive(message));
+        json.add("errors", errors);
+        send(exchange, status, json, null);
+    }
+
+    // command line
+
+    static private @Nonnull String option(@Nonnull Map<String, String> options, @Nonnull String name, @Nonnull String defaultValue) {
+        String value = options.get(name);
+        return ( value == null ? defaultValue : value );
+    }
+
+    /**
+     * Starts a stub server until the process is killed.
+     * @param args <code>key=value</code> options, see the class documentation
+     * @throws IOException the port could not be bound
+     */
+    static public void main(String ... args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        for( String arg : args ) {
+            int idx = arg.indexOf('=');
+            if( idx < 1 ) {
+                System.err.println("Ignoring " + arg + ", options are given as key=value");
+                continue;
+            }
+            options.put(arg.substring(0, idx), arg.substring(idx + 1));
+        }
+        StubBrightBoxServer stub = new StubBrightBoxServer(Integer.parseInt(option(options, "port", "0")),
+                Long.parseLong(option(options, "activationDelay", "2000")));
+        stub.setLatency(Long.parseLong(option(options, "latency", "0")), Long.parseLong(option(options, "jitter", "0")));
+        stub.setErrors(Double.parseDouble(option(options, "errorRate", "0")), Integer.parseInt(option(options, "errorStatus", "503")));
+        stub.setTokenLifetime(Long.parseLong(option(options, "tokenLifetime", "7200")));
+        stub.getData().populate(Integer.parseInt(option(options, "images", "8")), Integer.parseInt(option(options, "servers", "20")),
+                Integer.parseInt(option(options, "serverGroups", "4")), Integer.parseInt(option(options, "cloudIps", "6")),
+                Integer.parseInt(option(options, "loadBalancers", "2")));
+        stub.start();
+
+        System.out.println("Brightbox stub listening on " + stub.getEndpoint());
+        System.out.println("-Dendpoint=" + stub.getEndpoint() + " -DaccountNumber=" + StubData.ACCOUNT + " -DregionId=" + REGION_ID
+                + " -DapiKeyShared=" + API_KEY_SHARED + " -DapiKeySecret=" + API_KEY_SECRET
+                + " -DcloudName=Brightbox -DproviderName=Brightbox -DproviderClass=org.dasein.cloud.brightbox.BrightBoxCloud");
+    }
+}
@@ -0,0 +1,1058 @@
+/*
+ * Copyright (C) 2009-2015 Dell, Inc.
+ * See annotations for authorship information
+ * ====================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ====================================================================
+ */
+
+package org.dasein.cloud.brightbox.stub;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * The in-memory state behind {@link StubBrightBoxServer}: one account's zones, server types, images, servers,
+ * server groups, firewall policies, cloud IPs and load balancers. Resources keep their relations by id and are
+ * rendered in the shape of the Brightbox API, nested references included, whenever they are read. Every change
+ * bumps {@link #getVersion()}, which the server uses as the ETag of its collections.
+ * @version 2015.09.1 initial version
+ * @since 2015.09.1
+ */
+public class StubData {
+    static public final String ACCOUNT = "acc-stub1";
+
+    static private final String[] IMAGE_NAMES = {
+            "ubuntu-trusty-14.04-amd64-server", "centos-7.0-x86_64", "debian-jessie-8.1-amd64", "fedora-22-x86_64",
+            "freebsd-10.1-amd64", "windows-2012-r2-standard", "coreos-stable-717.3.0", "custom-app-server"
+    };
+
+    /**
+     * Thrown for requests naming a resource that does not exist; answered with 404.
+     */
+    static public class NotFoundException extends RuntimeException {
+        public NotFoundException(@Nonnull String id) {
+            super("Resource " + id + " not found");
+        }
+    }
+
+    /**
+     * Thrown for requests the API would reject as invalid; answered with 422.
+     */
+    static public class InvalidRequestException extends RuntimeException {
+        public InvalidRequestException(@Nonnull String message) {
+            super(message);
+        }
+    }
+
+    static private class Server {
+        final JsonObject  base;
+        final String      imageId;
+        final String      typeId;
+        final String      zoneId;
+        final Set<String> groupIds = new LinkedHashSet<String>();
+        long              activeAt;
+
+        Server(@Nonnull JsonObject base, @Nonnull String imageId, @Nonnull String typeId, @Nonnull String zoneId) {
+            this.base = base;
+            this.imageId = imageId;
+            this.typeId = typeId;
+            this.zoneId = zoneId;
+        }
+    }
+
+    static private class ServerGroup {
+        final JsonObject base;
+        String           firewallPolicyId;
+
+        ServerGroup(@Nonnull JsonObject base) {
+            this.base = base;
+        }
+    }
+
+    static private class FirewallPolicy {
+        final JsonObject       base;
+        final List<JsonObject> rules = new ArrayList<JsonObject>();
+        String                 serverGroupId;
+
+        FirewallPolicy(@Nonnull JsonObject base) {
+            this.base = base;
+        }
+    }
+
+    static private class CloudIp {
+        final JsonObject base;
+        String           serverId;
+        String           loadBalancerId;
+
+        CloudIp(@Nonnull JsonObject base) {
+            this.base = base;
+        }
+    }
+
+    static private class LoadBalancer {
+        final JsonObject  base;
+        final Set<String> nodeIds = new LinkedHashSet<String>();
+
+        LoadBalancer(@Nonnull JsonObject base) {
+            this.base = base;
+        }
+    }
+
+    private final String                      endpoint;
+    private final long                        activationDelay;
+    private final Map<String, JsonObject>     zones            = new LinkedHashMap<String, JsonObject>();
+    private final Map<String, JsonObject>     serverTypes      = new LinkedHashMap<String, JsonObject>();
+    private final Map<String, JsonObject>     images           = new LinkedHashMap<String, JsonObject>();
+    private final Map<String, Server>         servers          = new LinkedHashMap<String, Server>();
+    private final Map<String, ServerGroup>    serverGroups     = new LinkedHashMap<String, ServerGroup>();
+    private final Map<String, FirewallPolicy> firewallPolicies = new LinkedHashMap<String, FirewallPolicy>();
+    private final Map<String, CloudIp>        cloudIps         = new LinkedHashMap<String, CloudIp>();
+    private final Map<String, LoadBalancer>   loadBalancers    = new LinkedHashMap<String, LoadBalancer>();
+    private final Map<String, String>         ruleToPolicy     = new LinkedHashMap<String, String>();
+    private final Map<String, Integer>        sequences        = new LinkedHashMap<String, Integer>();
+    private long                              version          = 1;
+
+    /**
+     * @param endpoint the base URL resources link to
+     * @param activationDelay milliseconds a new server stays in the creating state
+     */
+    public StubData(@Nonnull String endpoint, long activationDelay) {
+        this.endpoint = endpoint;
+        this.activationDelay = activationDelay;
+        zone("gb1-a");
+        zone("gb1-b");
+        serverType("nano", "Nano", 1, 512, 20480);
+        serverType("small", "Small", 2, 2048, 81920);
+        serverType("medium", "Medium", 4, 4096, 163840);
+        serverType("large", "Large", 8, 8192, 327680);
+    }
+
+    /**
+     * Fills the account with generated resources. Every server belongs to the default group and up to two others,
+     * every group has its own firewall policy, and every third cloud IP is mapped to a server.
+     */
+    public synchronized void populate(int imageCount, int serverCount, int serverGroupCount, int cloudIpCount, int loadBalancerCount) {
+        for( int i = 0; i < imageCount; i++ ) {
+            String name = IMAGE_NAMES[i % IMAGE_NAMES.length];
+            createImage(name + (i < IMAGE_NAMES.length ? "" : "-" + i), name, i % 5 == 0 ? "i686" : "x86_64", i % 2 == 0);
+        }
+        List<String> groupIds = new ArrayList<String>();
+        for( int i = 0; i < Math.max(1, serverGroupCount); i++ ) {
+            groupIds.add(createServerGroup(i == 0 ? "default" : "group " + i, null, i == 0).get("id").getAsString());
+        }
+        List<String> imageIds = new ArrayList<String>(images.keySet());
+        List<String> typeIds = new ArrayList<String>(serverTypes.keySet());
+        List<String> zoneIds = new ArrayList<String>(zones.keySet());
+        for( int i = 0; i < serverCount && !imageIds.isEmpty(); i++ ) {
+            List<String> groups = new ArrayList<String>();
+            groups.add(groupIds.get(0));
+            for( int g = 1; g <= i % 3 && g < groupIds.size(); g++ ) {
+                groups.add(groupIds.get(1 + (i + g * 7) % (groupIds.size() - 1)));
+            }
+            Server server = newServer(imageIds.get(i % imageIds.size()), (i % 4 == 0 ? "web-ubuntu-" : "app-") + i,
+                    typeIds.get(i % typeIds.size()), zoneIds.get(i % zoneIds.size()), null, groups);
+            server.activeAt = 0;
+            if( i % 10 == 0 ) {
+                server.base.addProperty("status", "inactive");
+            }
+        }
+        List<String> serverIds = new ArrayList<String>(servers.keySet());
+        for( int i = 0; i < cloudIpCount; i++ ) {
+            CloudIp ip = newCloudIp(null);
+            if( i % 3 == 0 && !serverIds.isEmpty() ) {
+                ip.serverId = serverIds.get(i % serverIds.size());
+            }
+        }
+        for( int i = 0; i < loadBalancerCount; i++ ) {
+            LoadBalancer lb = newLoadBalancer("lb " + i, null, null);
+            for( int n = 0; n < 2 && !serverIds.isEmpty(); n++ ) {
+                lb.nodeIds.add(serverIds.get((2 * i + n) % serverIds.size()));
+            }
+        }
+        version++;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // ids, dates and references
+
+    private @Nonnull String nextId(@Nonnull String prefix) {
+        Integer n = sequences.get(prefix);
+        n = ( n == null ? 0 : n + 1 );
+        sequences.put(prefix, n);
+        String suffix = Integer.toString(n, 36);
+        StringBuilder id = new StringBuilder(prefix).append('-');
+        for( int i = suffix.length(); i < 5; i++ ) {
+            id.append('0');
+        }
+        return id.append(suffix).toString();
+    }
+
+    static private @Nonnull String now() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date());
+    }
+
+    private @Nonnull JsonObject resource(@Nonnull String id, @Nonnull String type, @Nonnull String collection) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("resource_type", type);
+        json.addProperty("url", endpoint + "/1.0/" + collection + "/" + id);
+        return json;
+    }
+
+    static private @Nonnull JsonObject ref(@Nonnull JsonObject base, @Nonnull String... fields) {
+        JsonObject ref = new JsonObject();
+        ref.add("id", base.get("id"));
+        ref.add("resource_type", base.get("resource_type"));
+        ref.add("url", base.get("url"));
+        for( String field : fields ) {
+            if( base.has(field) ) {
+                ref.add(field, base.get(field));
+            }
+        }
+        return ref;
+    }
+
+    private @Nonnull JsonObject account() {
+        JsonObject account = resource(ACCOUNT, "account", "accounts");
+        account.addProperty("name", "Stub Account");
+        account.addProperty("status", "active");
+        return account;
+    }
+
+    static private @Nonnull JsonElement orNull(@Nullable String value) {
+        return ( value == null ? JsonNull.INSTANCE : new JsonPrimitive(value) );
+    }
+
+    static private @Nullable String getString(@Nonnull JsonObject json, @Nonnull String field) {
+        JsonElement value = json.get(field);
+        return ( value == null || value.isJsonNull() ? null : value.getAsString() );
+    }
+
+    static private <T> T require(@Nullable T value, @Nonnull String id) {
+        if( value == null ) {
+            throw new NotFoundException(id);
+        }
+        return value;
+    }
+
+    // zones, server types and images
+
+    private void zone(@Nonnull String handle) {
+        JsonObject zone = resource(nextId("zon"), "zone", "zones");
+        zone.addProperty("handle", handle);
+        zones.put(zone.get("id").getAsString(), zone);
+    }
+
+    private void serverType(@Nonnull String handle, @Nonnull String name, int cores, int ram, int disk) {
+        JsonObject type = resource(nextId("typ"), "server_type", "server_types");
+        type.addProperty("name", name);
+        type.addProperty("status", "available");
+        type.addProperty("cores", cores);
+        type.addProperty("ram", ram);
+        type.addProperty("disk_size", disk);
+        type.addProperty("handle", handle);
+        serverTypes.put(type.get("id").getAsString(), type);
+    }
+
+    private @Nonnull JsonObject createImage(@Nonnull String name, @Nonnull String source, @Nonnull String arch, boolean isPublic) {
+        JsonObject image = resource(nextId("img"), "image", "images");
+        image.addProperty("name", name);
+        image.addProperty("username", "ubuntu");
+        image.addProperty("status", "available");
+        image.addProperty("locked", false);
+        image.addProperty("description", "Stub image " + name);
+        image.addProperty("source", source);
+        image.addProperty("arch", arch);
+        image.addProperty("created_at", now());
+        image.addProperty("official", isPublic);
+        image.addProperty("public", isPublic);
+        image.addProperty("owner", isPublic ? "acc-official" : ACCOUNT);
+        image.addProperty("source_type", "upload");
+        image.addProperty("virtual_size", 2252);
+        image.addProperty("disk_size", 1294);
+        image.add("min_ram", JsonNull.INSTANCE);
+        image.addProperty("compatibility_mode", false);
+        image.add("licence_name", orNull(source.startsWith("windows") ? "windows-2012-standard" : null));
+        images.put(image.get("id").getAsString(), image);
+        return image;
+    }
+
+    public synchronized @Nonnull JsonArray listZones() {
+        JsonArray result = new JsonArray();
+        for( JsonObject zone : zones.values() ) {
+            result.add(zone);
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonArray listServerTypes() {
+        JsonArray result = new JsonArray();
+        for( JsonObject type : serverTypes.values() ) {
+            result.add(type);
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonArray listImages() {
+        JsonArray result = new JsonArray();
+        for( JsonObject image : images.values() ) {
+            result.add(image);
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getImage(@Nonnull String id) {
+        return require(images.get(id), id);
+    }
+
+    public synchronized @Nonnull JsonObject deleteImage(@Nonnull String id) {
+        JsonObject image = require(images.remove(id), id);
+        image.addProperty("status", "deleted");
+        version++;
+        return image;
+    }
+
+    // servers
+
+    private @Nonnull Server newServer(@Nonnull String imageId, @Nullable String name, @Nullable String typeId, @Nullable String zoneId, @Nullable String userData, @Nullable List<String> groupIds) {
+        require(images.get(imageId), imageId);
+        if( typeId == null ) {
+            typeId = serverTypes.keySet().iterator().next();
+        }
+        if( zoneId == null ) {
+            zoneId = zones.keySet().iterator().next();
+        }
+        else if( !zones.containsKey(zoneId) ) {
+            for( JsonObject zone : zones.values() ) {
+                if( zoneId.equals(getString(zone, "handle")) ) {
+                    zoneId = zone.get("id").getAsString();
+                }
+            }
+        }
+        require(serverTypes.get(typeId), typeId);
+        require(zones.get(zoneId), zoneId);
+        String id = nextId("srv");
+        JsonObject base = resource(id, "server", "servers");
+        base.addProperty("name", name == null ? "" : name);
+        base.addProperty("status", "creating");
+        base.addProperty("hostname", id);
+        base.addProperty("fqdn", id + ".gb1.brightbox.com");
+        base.addProperty("created_at", now());
+        base.add("deleted_at", JsonNull.INSTANCE);
+        base.add("started_at", JsonNull.INSTANCE);
+        base.add("user_data", orNull(userData));
+        base.addProperty("compatibility_mode", false);
+        base.add("console_url", JsonNull.INSTANCE);
+        base.add("console_token", JsonNull.INSTANCE);
+        base.add("console_token_expires", JsonNull.INSTANCE);
+        base.addProperty("locked", false);
+        Server server = new Server(base, imageId, typeId, zoneId);
+        server.activeAt = System.currentTimeMillis() + activationDelay;
+        if( groupIds == null || groupIds.isEmpty() ) {
+            for( ServerGroup group : serverGroups.values() ) {
+                if( group.base.get("default").getAsBoolean() ) {
+                    server.groupIds.add(getString(group.base, "id"));
+                }
+            }
+        }
+        else {
+            for( String groupId : groupIds ) {
+                require(serverGroups.get(groupId), groupId);
+                server.groupIds.add(groupId);
+            }
+        }
+        servers.put(id, server);
+        return server;
+    }
+
+    private @Nonnull JsonObject render(@Nonnull Server server) {
+        if( server.activeAt > 0 && System.currentTimeMillis() >= server.activeAt ) {
+            server.activeAt = 0;
+            server.base.addProperty("status", "active");
+            server.base.addProperty("started_at", now());
+        }
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, JsonElement> field : server.base.entrySet() ) {
+            json.add(field.getKey(), field.getValue());
+        }
+        json.add("account", account());
+        json.add("image", images.containsKey(server.imageId) ? images.get(server.imageId) : ref(resource(server.imageId, "image", "images")));
+        json.add("server_type", serverTypes.get(server.typeId));
+        json.add("zone", zones.get(server.zoneId));
+        json.add("snapshots", new JsonArray());
+        JsonArray ips = new JsonArray();
+        for( CloudIp ip : cloudIps.values() ) {
+            if( server.base.get("id").getAsString().equals(ip.serverId) ) {
+                ips.add(ref(ip.base, "public_ip", "reverse_dns", "name"));
+            }
+        }
+        json.add("cloud_ips", ips);
+        JsonArray interfaces = new JsonArray();
+        String id = server.base.get("id").getAsString();
+        String interfaceId = "int" + id.substring(3);
+        JsonObject iface = resource(interfaceId, "interface", "interfaces");
+        int n = Integer.parseInt(id.substring(4), 36);
+        iface.addProperty("mac_address", String.format("02:24:19:%02x:%02x:%02x", (n >> 16) & 0xff, (n >> 8) & 0xff, n & 0xff));
+        iface.addProperty("ipv4_address", "10." + ((n >> 16) & 0xff) + "." + ((n >> 8) & 0xff) + "." + (n & 0xff));
+        iface.addProperty("ipv6_address", "2a02:1348:17c:" + Integer.toHexString(n) + "::1");
+        interfaces.add(iface);
+        json.add("interfaces", interfaces);
+        JsonArray groups = new JsonArray();
+        for( String groupId : server.groupIds ) {
+            ServerGroup group = serverGroups.get(groupId);
+            if( group != null ) {
+                groups.add(ref(group.base, "name", "description", "created_at", "default"));
+            }
+        }
+        json.add("server_groups", groups);
+        return json;
+    }
+
+    public synchronized @Nonnull JsonArray listServers() {
+        JsonArray result = new JsonArray();
+        for( Server server : servers.values() ) {
+            result.add(render(server));
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getServer(@Nonnull String id) {
+        return render(require(servers.get(id), id));
+    }
+
+    public synchronized @Nonnull JsonObject createServer(@Nonnull JsonObject request) {
+        String imageId = getString(request, "image");
+        if( imageId == null ) {
+            throw new InvalidRequestException("image is required");
+        }
+        List<String> groupIds = new ArrayList<String>();
+        JsonElement groups = request.get("server_groups");
+        if( groups != null && groups.isJsonArray() ) {
+            for( JsonElement group : groups.getAsJsonArray() ) {
+                groupIds.add(group.getAsString());
+            }
+        }
+        else if( groups != null && groups.isJsonPrimitive() ) {
+            groupIds.add(groups.getAsString());
+        }
+        Server server = newServer(imageId, getString(request, "name"), getString(request, "server_type"), getString(request, "zone"),
+                getString(request, "user_data"), groupIds);
+        version++;
+        return render(server);
+    }
+
+    public synchronized @Nonnull JsonObject updateServer(@Nonnull String id, @Nonnull JsonObject request) {
+        Server server = require(servers.get(id), id);
+        for( String field : new String[] { "name", "user_data", "compatibility_mode" } ) {
+            if( request.has(field) ) {
+                server.base.add(field, request.get(field));
+            }
+        }
+        version++;
+        return render(server);
+    }
+
+    public synchronized @Nonnull JsonObject deleteServer(@Nonnull String id) {
+        Server server = require(servers.remove(id), id);
+        server.base.addProperty("status", "deleted");
+        server.base.addProperty("deleted_at", now());
+        for( CloudIp ip : cloudIps.values() ) {
+            if( id.equals(ip.serverId) ) {
+                ip.serverId = null;
+            }
+        }
+        for( LoadBalancer lb : loadBalancers.values() ) {
+            lb.nodeIds.remove(id);
+        }
+        version++;
+        return render(server);
+    }
+
+    /**
+     * @param action one of start, stop, reboot, reset, shutdown, activate_console or snapshot
+     */
+    public synchronized @Nonnull JsonObject serverAction(@Nonnull String id, @Nonnull String action) {
+        Server server = require(servers.get(id), id);
+        if( "start".equals(action) ) {
+            server.base.addProperty("status", "active");
+            server.base.addProperty("started_at", now());
+        }
+        else if( "stop".equals(action) || "shutdown".equals(action) ) {
+            server.base.addProperty("status", "inactive");
+        }
+        else if( "reboot".equals(action) || "reset".equals(action) ) {
+            server.base.addProperty("status", "active");
+        }
+        else if( "activate_console".equals(action) ) {
+            server.base.addProperty("console_url", endpoint + "/console/" + id);
+            server.base.addProperty("console_token", Long.toString(System.nanoTime(), 36));
+            server.base.addProperty("console_token_expires", now());
+        }
+        else if( "snapshot".equals(action) ) {
+            JsonObject image = createImage("Snapshot of " + id, id, "x86_64", false);
+            image.addProperty("source_type", "snapshot");
+        }
+        else {
+            throw new NotFoundException(action);
+        }
+        version++;
+        return render(server);
+    }
+
+    // server groups
+
+    private @Nonnull JsonObject createServerGroup(@Nullable String name, @Nullable String description, boolean isDefault) {
+        JsonObject base = resource(nextId("grp"), "server_group", "server_groups");
+        base.addProperty("name", name == null ? "" : name);
+        base.add("description", orNull(description));
+        base.addProperty("created_at", now());
+        base.addProperty("default", isDefault);
+        ServerGroup group = new ServerGroup(base);
+        serverGroups.put(base.get("id").getAsString(), group);
+        FirewallPolicy policy = newFirewallPolicy("policy for " + base.get("name").getAsString(), null);
+        policy.serverGroupId = base.get("id").getAsString();
+        group.firewallPolicyId = policy.base.get("id").getAsString();
+        return render(group);
+    }
+
+    private @Nonnull JsonObject render(@Nonnull ServerGroup group) {
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, JsonElement> field : group.base.entrySet() ) {
+            json.add(field.getKey(), field.getValue());
+        }
+        String id = group.base.get("id").getAsString();
+        json.add("account", account());
+        FirewallPolicy policy = ( group.firewallPolicyId == null ? null : firewallPolicies.get(group.firewallPolicyId) );
+        json.add("firewall_policy", policy == null ? JsonNull.INSTANCE : ref(policy.base, "name", "description", "default", "created_at"));
+        JsonArray members = new JsonArray();
+        for( Server server : servers.values() ) {
+            if( server.groupIds.contains(id) ) {
+                members.add(ref(server.base, "name", "status", "hostname", "fqdn", "created_at"));
+            }
+        }
+        json.add("servers", members);
+        return json;
+    }
+
+    public synchronized @Nonnull JsonArray listServerGroups() {
+        JsonArray result = new JsonArray();
+        for( ServerGroup group : serverGroups.values() ) {
+            result.add(render(group));
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getServerGroup(@Nonnull String id) {
+        return render(require(serverGroups.get(id), id));
+    }
+
+    public synchronized @Nonnull JsonObject createServerGroup(@Nonnull JsonObject request) {
+        JsonObject group = createServerGroup(getString(request, "name"), getString(request, "description"), false);
+        version++;
+        return group;
+    }
+
+    public synchronized @Nonnull JsonObject deleteServerGroup(@Nonnull String id) {
+        ServerGroup group = require(serverGroups.get(id), id);
+        if( group.base.get("default").getAsBoolean() ) {
+            throw new InvalidRequestException("The default server group cannot be deleted");
+        }
+        serverGroups.remove(id);
+        for( Server server : servers.values() ) {
+            server.groupIds.remove(id);
+        }
+        FirewallPolicy policy = ( group.firewallPolicyId == null ? null : firewallPolicies.get(group.firewallPolicyId) );
+        if( policy != null ) {
+            policy.serverGroupId = null;
+        }
+        version++;
+        return render(group);
+    }
+
+    /**
+     * @param serverIds the servers to add to or remove from the group
+     * @param add true to add the servers, false to remove them
+     */
+    public synchronized @Nonnull JsonObject updateServerGroupMembers(@Nonnull String id, @Nonnull List<String> serverIds, boolean add) {
+        ServerGroup group = require(serverGroups.get(id), id);
+        for( String serverId : serverIds ) {
+            Server server = require(servers.get(serverId), serverId);
+            if( add ) {
+                server.groupIds.add(id);
+            }
+            else {
+                server.groupIds.remove(id);
+            }
+        }
+        version++;
+        return render(group);
+    }
+
+    // firewall policies and rules
+
+    private @Nonnull FirewallPolicy newFirewallPolicy(@Nullable String name, @Nullable String description) {
+        String id = nextId("fwp");
+        JsonObject base = resource(id, "firewall_policy", "firewall_policies");
+        base.addProperty("name", name == null ? "" : name);
+        base.add("description", orNull(description));
+        base.addProperty("default", false);
+        base.addProperty("created_at", now());
+        FirewallPolicy policy = new FirewallPolicy(base);
+        firewallPolicies.put(id, policy);
+        JsonObject inbound = new JsonObject();
+        inbound.addProperty("source", "any");
+        inbound.addProperty("destination_port", "22");
+        inbound.addProperty("protocol", "tcp");
+        inbound.addProperty("description", "ssh");
+        addRule(policy, inbound);
+        JsonObject outbound = new JsonObject();
+        outbound.addProperty("destination", "any");
+        outbound.addProperty("source_port", "1-65535");
+        outbound.addProperty("description", "outbound");
+        addRule(policy, outbound);
+        return policy;
+    }
+
+    private @Nonnull JsonObject addRule(@Nonnull FirewallPolicy policy, @Nonnull JsonObject request) {
+        String id = nextId("fwr");
+        JsonObject rule = resource(id, "firewall_rule", "firewall_rules");
+        for( String field : new String[] { "source", "source_port", "destination", "destination_port", "protocol", "icmp_type_name", "description" } ) {
+            rule.add(field, request.has(field) ? request.get(field) : JsonNull.INSTANCE);
+        }
+        rule.addProperty("created_at", now());
+        policy.rules.add(rule);
+        ruleToPolicy.put(id, policy.base.get("id").getAsString());
+        return rule;
+    }
+
+    private @Nonnull JsonObject render(@Nonnull FirewallPolicy policy) {
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, JsonElement> field : policy.base.entrySet() ) {
+            json.add(field.getKey(), field.getValue());
+        }
+        ServerGroup group = ( policy.serverGroupId == null ? null : serverGroups.get(policy.serverGroupId) );
+        json.add("server_group", group == null ? JsonNull.INSTANCE : ref(group.base, "name", "description", "default", "created_at"));
+        JsonArray rules = new JsonArray();
+        for( JsonObject rule : policy.rules ) {
+            rules.add(rule);
+        }
+        json.add("rules", rules);
+        return json;
+    }
+
+    public synchronized @Nonnull JsonArray listFirewallPolicies() {
+        JsonArray result = new JsonArray();
+        for( FirewallPolicy policy : firewallPolicies.values() ) {
+            result.add(render(policy));
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getFirewallPolicy(@Nonnull String id) {
+        return render(require(firewallPolicies.get(id), id));
+    }
+
+    public synchronized @Nonnull JsonObject createFirewallPolicy(@Nonnull JsonObject request) {
+        FirewallPolicy policy = newFirewallPolicy(getString(request, "name"), getString(request, "description"));
+        String groupId = getString(request, "server_group");
+        if( groupId != null ) {
+            applyFirewallPolicy(policy, groupId);
+        }
+        version++;
+        return render(policy);
+    }
+
+    public synchronized @Nonnull JsonObject updateFirewallPolicy(@Nonnull String id, @Nonnull JsonObject request) {
+        FirewallPolicy policy = require(firewallPolicies.get(id), id);
+        for( String field : new String[] { "name", "description" } ) {
+            if( request.has(field) ) {
+                policy.base.add(field, request.get(field));
+            }
+        }
+        version++;
+        return render(policy);
+    }
+
+    public synchronized @Nonnull JsonObject deleteFirewallPolicy(@Nonnull String id) {
+        FirewallPolicy policy = require(firewallPolicies.remove(id), id);
+        for( ServerGroup group : serverGroups.values() ) {
+            if( id.equals(group.firewallPolicyId) ) {
+                group.firewallPolicyId = null;
+            }
+        }
+        for( JsonObject rule : policy.rules ) {
+            ruleToPolicy.remove(rule.get("id").getAsString());
+        }
+        version++;
+        return render(policy);
+    }
+
+    private void applyFirewallPolicy(@Nonnull FirewallPolicy policy, @Nonnull String groupId) {
+        ServerGroup group = require(serverGroups.get(groupId), groupId);
+        if( group.firewallPolicyId != null && firewallPolicies.containsKey(group.firewallPolicyId) ) {
+            firewallPolicies.get(group.firewallPolicyId).serverGroupId = null;
+        }
+        group.firewallPolicyId = policy.base.get("id").getAsString();
+        policy.serverGroupId = groupId;
+    }
+
+    public synchronized @Nonnull JsonObject applyFirewallPolicy(@Nonnull String id, @Nullable String groupId) {
+        FirewallPolicy policy = require(firewallPolicies.get(id), id);
+        if( groupId == null ) {
+            throw new InvalidRequestException("server_group is required");
+        }
+        applyFirewallPolicy(policy, groupId);
+        version++;
+        return render(policy);
+    }
+
+    public synchronized @Nonnull JsonObject getFirewallRule(@Nonnull String id) {
+        FirewallPolicy policy = require(firewallPolicies.get(require(ruleToPolicy.get(id), id)), id);
+        for( JsonObject rule : policy.rules ) {
+            if( id.equals(getString(rule, "id")) ) {
+                JsonObject json = new JsonObject();
+                for( Map.Entry<String, JsonElement> field : rule.entrySet() ) {
+                    json.add(field.getKey(), field.getValue());
+                }
+                json.add("firewall_policy", ref(policy.base, "name", "description", "default", "created_at"));
+                return json;
+            }
+        }
+        throw new NotFoundException(id);
+    }
+
+    public synchronized @Nonnull JsonObject createFirewallRule(@Nonnull JsonObject request) {
+        String policyId = getString(request, "firewall_policy");
+        if( policyId == null ) {
+            throw new InvalidRequestException("firewall_policy is required");
+        }
+        JsonObject rule = addRule(require(firewallPolicies.get(policyId), policyId), request);
+        version++;
+        return getFirewallRule(rule.get("id").getAsString());
+    }
+
+    public synchronized @Nonnull JsonObject updateFirewallRule(@Nonnull String id, @Nonnull JsonObject request) {
+        FirewallPolicy policy = require(firewallPolicies.get(require(ruleToPolicy.get(id), id)), id);
+        for( JsonObject rule : policy.rules ) {
+            if( id.equals(getString(rule, "id")) ) {
+                for( String field : new String[] { "source", "source_port", "destination", "destination_port", "protocol", "icmp_type_name", "description" } ) {
+                    if( request.has(field) ) {
+                        rule.add(field, request.get(field));
+                    }
+                }
+            }
+        }
+        version++;
+        return getFirewallRule(id);
+    }
+
+    public synchronized @Nonnull JsonObject deleteFirewallRule(@Nonnull String id) {
+        JsonObject rule = getFirewallRule(id);
+        FirewallPolicy policy = firewallPolicies.get(ruleToPolicy.remove(id));
+        for( int i = 0; i < policy.rules.size(); i++ ) {
+            if( id.equals(getString(policy.rules.get(i), "id")) ) {
+                policy.rules.remove(i);
+                break;
+            }
+        }
+        version++;
+        return rule;
+    }
+
+    // cloud ips
+
+    private @Nonnull CloudIp newCloudIp(@Nullable JsonObject request) {
+        String id = nextId("cip");
+        int n = Integer.parseInt(id.substring(4), 36);
+        JsonObject base = resource(id, "cloud_ip", "cloud_ips");
+        base.addProperty("public_ip", "109.107." + ((n >> 8) & 0xff) + "." + (n & 0xff));
+        base.addProperty("reverse_dns", "cip-109-107-" + ((n >> 8) & 0xff) + "-" + (n & 0xff) + ".gb1.brightbox.com");
+        base.add("name", orNull(request == null ? null : getString(request, "name")));
+        base.add("port_translators", request != null && request.has("port_translators") ? request.get("port_translators") : new JsonArray());
+        CloudIp ip = new CloudIp(base);
+        cloudIps.put(id, ip);
+        return ip;
+    }
+
+    private @Nonnull JsonObject render(@Nonnull CloudIp ip) {
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, JsonElement> field : ip.base.entrySet() ) {
+            json.add(field.getKey(), field.getValue());
+        }
+        Server server = ( ip.serverId == null ? null : servers.get(ip.serverId) );
+        LoadBalancer lb = ( ip.loadBalancerId == null ? null : loadBalancers.get(ip.loadBalancerId) );
+        json.addProperty("status", server != null || lb != null ? "mapped" : "unmapped");
+        json.add("account", account());
+        if( server != null ) {
+            String serverId = server.base.get("id").getAsString();
+            json.add("interface", ref(resource("int" + serverId.substring(3), "interface", "interfaces")));
+            json.add("server", ref(server.base, "name", "status", "hostname", "fqdn", "created_at"));
+        }
+        else {
+            json.add("interface", JsonNull.INSTANCE);
+            json.add("server", JsonNull.INSTANCE);
+        }
+        json.add("load_balancer", lb == null ? JsonNull.INSTANCE : ref(lb.base, "name", "status", "created_at"));
+        json.add("database_server", JsonNull.INSTANCE);
+        return json;
+    }
+
+    public synchronized @Nonnull JsonArray listCloudIps() {
+        JsonArray result = new JsonArray();
+        for( CloudIp ip : cloudIps.values() ) {
+            result.add(render(ip));
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getCloudIp(@Nonnull String id) {
+        return render(require(cloudIps.get(id), id));
+    }
+
+    public synchronized @Nonnull JsonObject createCloudIp(@Nonnull JsonObject request) {
+        CloudIp ip = newCloudIp(request);
+        version++;
+        return render(ip);
+    }
+
+    public synchronized @Nonnull JsonObject updateCloudIp(@Nonnull String id, @Nonnull JsonObject request) {
+        CloudIp ip = require(cloudIps.get(id), id);
+        for( String field : new String[] { "name", "reverse_dns", "port_translators" } ) {
+            if( request.has(field) ) {
+                ip.base.add(field, request.get(field));
+            }
+        }
+        version++;
+        return render(ip);
+    }
+
+    public synchronized @Nonnull JsonObject deleteCloudIp(@Nonnull String id) {
+        CloudIp ip = require(cloudIps.remove(id), id);
+        version++;
+        return render(ip);
+    }
+
+    /**
+     * @param destination a server, interface or load balancer id, or null to unmap the address
+     */
+    public synchronized @Nonnull JsonObject mapCloudIp(@Nonnull String id, @Nullable String destination) {
+        CloudIp ip = require(cloudIps.get(id), id);
+        ip.serverId = null;
+        ip.loadBalancerId = null;
+        if( destination != null ) {
+            if( destination.startsWith("int-") ) {
+                destination = "srv" + destination.substring(3);
+            }
+            if( destination.startsWith("srv-") ) {
+                require(servers.get(destination), destination);
+                ip.serverId = destination;
+            }
+            else if( destination.startsWith("lba-") ) {
+                require(loadBalancers.get(destination), destination);
+                ip.loadBalancerId = destination;
+            }
+            else {
+                throw new InvalidRequestException("Cannot map to " + destination);
+            }
+        }
+        version++;
+        return render(ip);
+    }
+
+    // load balancers
+
+    private @Nonnull LoadBalancer newLoadBalancer(@Nullable String name, @Nullable JsonArray listeners, @Nullable JsonObject healthcheck) {
+        JsonObject base = resource(nextId("lba"), "load_balancer", "load_balancers");
+        base.addProperty("name", name == null ? "" : name);
+        base.addProperty("status", "active");
+        base.addProperty("policy", "least-connections");
+        base.addProperty("buffer_size", 4096);
+        base.addProperty("created_at", now());
+        base.add("deleted_at", JsonNull.INSTANCE);
+        base.addProperty("locked", false);
+        if( listeners == null ) {
+            listeners = new JsonArray();
+            JsonObject http = new JsonObject();
+            http.addProperty("in", 80);
+            http.addProperty("out", 8080);
+            http.addProperty("protocol", "http");
+            http.addProperty("timeout", 50000);
+            listeners.add(http);
+        }
+        base.add("listeners", listeners);
+        if( healthcheck == null ) {
+            healthcheck = new JsonObject();
+            healthcheck.addProperty("type", "http");
+            healthcheck.addProperty("port", 8080);
+            healthcheck.addProperty("request", "/");
+            healthcheck.addProperty("interval", 5000);
+            healthcheck.addProperty("timeout", 5000);
+            healthcheck.addProperty("threshold_up", 3);
+            healthcheck.addProperty("threshold_down", 3);
+        }
+        base.add("healthcheck", healthcheck);
+        LoadBalancer lb = new LoadBalancer(base);
+        loadBalancers.put(base.get("id").getAsString(), lb);
+        return lb;
+    }
+
+    private @Nonnull JsonObject render(@Nonnull LoadBalancer lb) {
+        JsonObject json = new JsonObject();
+        for( Map.Entry<String, JsonElement> field : lb.base.entrySet() ) {
+            json.add(field.getKey(), field.getValue());
+        }
+        String id = lb.base.get("id").getAsString();
+        json.add("account", account());
+        JsonArray ips = new JsonArray();
+        for( CloudIp ip : cloudIps.values() ) {
+            if( id.equals(ip.loadBalancerId) ) {
+                ips.add(ref(ip.base, "public_ip", "reverse_dns", "name"));
+            }
+        }
+        json.add("cloud_ips", ips);
+        JsonArray nodes = new JsonArray();
+        for( String nodeId : lb.nodeIds ) {
+            Server server = servers.get(nodeId);
+            if( server != null ) {
+                JsonObject node = ref(server.base, "name", "status", "hostname", "fqdn", "created_at");
+                node.add("zone", zones.get(server.zoneId));
+                nodes.add(node);
+            }
+        }
+        json.add("nodes", nodes);
+        return json;
+    }
+
+    static private @Nonnull List<String> getNodeIds(@Nonnull JsonObject request) {
+        List<String> ids = new ArrayList<String>();
+        JsonElement nodes = request.get("nodes");
+        if( nodes != null && nodes.isJsonArray() ) {
+            for( JsonElement node : nodes.getAsJsonArray() ) {
+                ids.add(node.isJsonObject() ? getString(node.getAsJsonObject(), "node") : node.getAsString());
+            }
+        }
+        return ids;
+    }
+
+    public synchronized @Nonnull JsonArray listLoadBalancers() {
+        JsonArray result = new JsonArray();
+        for( LoadBalancer lb : loadBalancers.values() ) {
+            result.add(render(lb));
+        }
+        return result;
+    }
+
+    public synchronized @Nonnull JsonObject getLoadBalancer(@Nonnull String id) {
+        return render(require(loadBalancers.get(id), id));
+    }
+
+    public synchronized @Nonnull JsonObject createLoadBalancer(@Nonnull JsonObject request) {
+        JsonElement listeners = request.get("listeners");
+        JsonElement healthcheck = request.get("healthcheck");
+        LoadBalancer lb = newLoadBalancer(getString(request, "name"),
+                listeners != null && listeners.isJsonArray() ? listeners.getAsJsonArray() : null,
+                healthcheck != null && healthcheck.isJsonObject() ? healthcheck.getAsJsonObject() : null);
+        for( String nodeId : getNodeIds(request) ) {
+            require(servers.get(nodeId), nodeId);
+            lb.nodeIds.add(nodeId);
+        }
+        version++;
+        return render(lb);
+    }
+
+    public synchronized @Nonnull JsonObject updateLoadBalancer(@Nonnull String id, @Nonnull JsonObject request) {
+        LoadBalancer lb = require(loadBalancers.get(id), id);
+        for( String field : new String[] { "name", "policy", "buffer_size", "healthcheck", "listeners" } ) {
+            if( request.has(field) && !request.get(field).isJsonNull() ) {
+                lb.base.add(field, request.get(field));
+            }
+        }
+        version++;
+        return render(lb);
+    }
+
+    public synchronized @Nonnull JsonObject deleteLoadBalancer(@Nonnull String id) {
+        LoadBalancer lb = require(loadBalancers.remove(id), id);
+        lb.base.addProperty("status", "deleted");
+        for( CloudIp ip : cloudIps.values() ) {
+            if( id.equals(ip.loadBalancerId) ) {
+                ip.loadBalancerId = null;
+            }
+        }
+        version++;
+        return render(lb);
+    }
+
+    /**
+     * @param action one of add_nodes, remove_nodes, add_listeners or remove_listeners
+     */
+    public synchronized @Nonnull JsonObject loadBalancerAction(@Nonnull String id, @Nonnull String action, @Nonnull JsonObject request) {
+        LoadBalancer lb = require(loadBalancers.get(id), id);
+        if( "add_nodes".equals(action) ) {
+            for( String nodeId : getNodeIds(request) ) {
+                require(servers.get(nodeId), nodeId);
+                lb.nodeIds.add(nodeId);
+            }
+        }
+        else if( "remove_nodes".equals(action) ) {
+            lb.nodeIds.removeAll(getNodeIds(request));
+        }
+        else if( "add_listeners".equals(action) || "remove_listeners".equals(action) ) {
+            JsonElement requested = request.get("listeners");
+            JsonArray listeners = lb.base.getAsJsonArray("listeners");
+            if( requested != null && requested.isJsonArray() ) {
+                for( JsonElement listener : requested.getAsJsonArray() ) {
+                    if( "add_listeners".equals(action) ) {
+                        listeners.add(listener);
+                    }
+                    else {
+                        JsonArray remaining = new JsonArray();
+                        for( JsonElement existing : listeners ) {
+                            if( !existing.getAsJsonObject().get("in").equals(listener.getAsJsonObject().get("in")) ) {
+                                remaining.add(existing);
+                            }
+                        }
+                        listeners = remaining;
+                    }
+                }
+            }
+            lb.base.add("listeners", listeners);
+        }
+        else {
+            throw new NotFoundException(action);
+        }
+        version++;
+        return render(lb);
+    }
+}